@@ -23,6 +23,8 @@
  */
 package io.jrb.labs.webflux.common.module.workflow;
 
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulerConfig;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -30,6 +32,7 @@ import org.springframework.boot.context.properties.ConstructorBinding;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
 
@@ -41,14 +44,270 @@ public class WorkflowModuleConfig {
     private final Map<String, String> workflowAliases;
     private final String claimTicketNumberHeader;
     private final String baseDirectory;
+    private final StateCodec stateCodec;
+    private final StateStore stateStore;
+    private final Fsync stateFsync;
+    private final String stateCollection;
+    private final PayloadStore payloadStore;
+    private final int payloadThreshold;
+    private final Recovery recovery;
+    private final String instanceId;
+    private final Lease lease;
+    private final WriteBehind writeBehind;
+    private final BoundedSchedulerConfig scheduler;
+    private final long eventRetentionInSec;
+    private final Map<String, Admission> admission;
+    private final Admission defaultAdmission;
+    private final Map<String, StepPolicy> stepPolicy;
+    private final StepPolicy defaultStepPolicy;
+    private final Map<String, Retention> retention;
+    private final Retention defaultRetention;
+    private final Sweeper sweeper;
 
     public WorkflowModuleConfig(
             final Map<String, String> workflowAliases,
             final String claimTicketNumberHeader,
-            final String baseDirectory
+            final String baseDirectory,
+            final StateCodec stateCodec,
+            final StateStore stateStore,
+            final Fsync stateFsync,
+            final String stateCollection,
+            final PayloadStore payloadStore,
+            final Integer payloadThreshold,
+            final Recovery recovery,
+            final String instanceId,
+            final Lease lease,
+            final WriteBehind writeBehind,
+            final BoundedSchedulerConfig scheduler,
+            final Long eventRetentionInSec,
+            final Map<String, Admission> admission,
+            final Admission defaultAdmission,
+            final Map<String, StepPolicy> stepPolicy,
+            final StepPolicy defaultStepPolicy,
+            final Map<String, Retention> retention,
+            final Retention defaultRetention,
+            final Sweeper sweeper
     ) {
         this.workflowAliases = workflowAliases;
         this.claimTicketNumberHeader = Optional.ofNullable(claimTicketNumberHeader).orElse("x-claim-ticket-number");
         this.baseDirectory = baseDirectory;
+        this.stateCodec = Optional.ofNullable(stateCodec).orElse(StateCodec.JAVA);
+        this.stateStore = Optional.ofNullable(stateStore).orElse(StateStore.DISK);
+        this.stateFsync = Optional.ofNullable(stateFsync).orElse(Fsync.FILE);
+        this.stateCollection = Optional.ofNullable(stateCollection).orElse("workflowState");
+        this.payloadStore = Optional.ofNullable(payloadStore).orElse(PayloadStore.NONE);
+        this.payloadThreshold = Optional.ofNullable(payloadThreshold).orElse(64 * 1024);
+        this.recovery = Optional.ofNullable(recovery).orElse(Recovery.RESUME);
+        this.instanceId = Optional.ofNullable(instanceId).orElse(UUID.randomUUID().toString());
+        this.lease = Optional.ofNullable(lease).orElse(new Lease(null, null));
+        this.writeBehind = Optional.ofNullable(writeBehind).orElse(new WriteBehind(null, null));
+        this.scheduler = Optional.ofNullable(scheduler).orElse(new BoundedSchedulerConfig(null, null, null));
+        this.eventRetentionInSec = Optional.ofNullable(eventRetentionInSec).orElse(600L);
+        this.admission = Optional.ofNullable(admission).orElse(ImmutableMap.of());
+        this.defaultAdmission = Optional.ofNullable(defaultAdmission).orElse(new Admission(null, null, null));
+        this.stepPolicy = Optional.ofNullable(stepPolicy).orElse(ImmutableMap.of());
+        this.defaultStepPolicy = Optional.ofNullable(defaultStepPolicy)
+                .orElse(new StepPolicy(null, null, null, null, null));
+        this.retention = Optional.ofNullable(retention).orElse(ImmutableMap.of());
+        this.defaultRetention = Optional.ofNullable(defaultRetention).orElse(new Retention(null, null));
+        this.sweeper = Optional.ofNullable(sweeper).orElse(new Sweeper(null, null, null));
+    }
+
+    /**
+     * Selects what the disk state store forces to disk before a save completes: nothing, leaving it to the operating
+     * system; the state file; or the state file and then its directory, so the rename itself survives a power loss.
+     */
+    public enum Fsync {
+        NONE,
+        FILE,
+        DIRECTORY
+    }
+
+    /**
+     * Selects where large workflow payloads are stored apart from the state records: nowhere (kept inline), in files
+     * on the local disk, or in MongoDB GridFS.
+     */
+    public enum PayloadStore {
+        NONE,
+        FILE,
+        GRIDFS
+    }
+
+    /**
+     * Selects what happens to workflows left initialized or running by an instance that stopped renewing their
+     * {@link Lease lease}: nothing, marked as failed, or resumed from their outstanding steps.
+     */
+    public enum Recovery {
+        NONE,
+        FAIL,
+        RESUME
+    }
+
+    /**
+     * Selects how workflow contexts are encoded: standard Java serialization, or the more compact Jackson Smile.
+     */
+    public enum StateCodec {
+        JAVA,
+        SMILE
+    }
+
+    /**
+     * Selects where workflow contexts are persisted: on the local disk of the node, or in MongoDB where they are
+     * shared by every instance.
+     */
+    public enum StateStore {
+        DISK,
+        MONGO
+    }
+
+    /**
+     * Limits how many instances of a workflow run at once ({@code maxConcurrent}) and how many more may wait for a
+     * slot ({@code maxQueued}); further requests are rejected, asking the client to retry after
+     * {@code retryAfterInSec}.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class Admission {
+
+        private static final int DEFAULT_MAX_CONCURRENT = 2;
+        private static final int DEFAULT_MAX_QUEUED = 10;
+        private static final long DEFAULT_RETRY_AFTER_IN_SEC = 5;
+
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final long retryAfterInSec;
+
+        public Admission(final Integer maxConcurrent, final Integer maxQueued, final Long retryAfterInSec) {
+            this.maxConcurrent = Optional.ofNullable(maxConcurrent).orElse(DEFAULT_MAX_CONCURRENT);
+            this.maxQueued = Optional.ofNullable(maxQueued).orElse(DEFAULT_MAX_QUEUED);
+            this.retryAfterInSec = Optional.ofNullable(retryAfterInSec).orElse(DEFAULT_RETRY_AFTER_IN_SEC);
+        }
+
+    }
+
+    /**
+     * Limits how long the state of a finished workflow is kept. A completed or failed workflow is replaced by a
+     * {@code REMOVED} tombstone {@code ttlInSec} after it was last saved, and the tombstone is deleted
+     * {@code tombstoneTtlInSec} after that, until when its claim ticket still reports the workflow as removed.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class Retention {
+
+        private static final long DEFAULT_TTL_IN_SEC = 24 * 60 * 60;
+        private static final long DEFAULT_TOMBSTONE_TTL_IN_SEC = 24 * 60 * 60;
+
+        private final long ttlInSec;
+        private final long tombstoneTtlInSec;
+
+        public Retention(final Long ttlInSec, final Long tombstoneTtlInSec) {
+            this.ttlInSec = Optional.ofNullable(ttlInSec).orElse(DEFAULT_TTL_IN_SEC);
+            this.tombstoneTtlInSec = Optional.ofNullable(tombstoneTtlInSec).orElse(DEFAULT_TOMBSTONE_TTL_IN_SEC);
+        }
+
+    }
+
+    /**
+     * Bounds a workflow step: the step fails once {@code timeoutInMs} has passed, retries included. A failed attempt
+     * is retried up to {@code maxRetries} times, waiting an exponential backoff that starts at
+     * {@code retryBackoffInMs}, is capped at {@code maxRetryBackoffInMs}, and is randomized by {@code jitterFactor}.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class StepPolicy {
+
+        private static final long DEFAULT_TIMEOUT_IN_MS = 60_000;
+        private static final int DEFAULT_MAX_RETRIES = 2;
+        private static final long DEFAULT_RETRY_BACKOFF_IN_MS = 100;
+        private static final long DEFAULT_MAX_RETRY_BACKOFF_IN_MS = 2_000;
+        private static final double DEFAULT_JITTER_FACTOR = 0.5;
+
+        private final long timeoutInMs;
+        private final int maxRetries;
+        private final long retryBackoffInMs;
+        private final long maxRetryBackoffInMs;
+        private final double jitterFactor;
+
+        public StepPolicy(
+                final Long timeoutInMs,
+                final Integer maxRetries,
+                final Long retryBackoffInMs,
+                final Long maxRetryBackoffInMs,
+                final Double jitterFactor
+        ) {
+            this.timeoutInMs = Optional.ofNullable(timeoutInMs).orElse(DEFAULT_TIMEOUT_IN_MS);
+            this.maxRetries = Optional.ofNullable(maxRetries).orElse(DEFAULT_MAX_RETRIES);
+            this.retryBackoffInMs = Optional.ofNullable(retryBackoffInMs).orElse(DEFAULT_RETRY_BACKOFF_IN_MS);
+            this.maxRetryBackoffInMs = Optional.ofNullable(maxRetryBackoffInMs).orElse(DEFAULT_MAX_RETRY_BACKOFF_IN_MS);
+            this.jitterFactor = Optional.ofNullable(jitterFactor).orElse(DEFAULT_JITTER_FACTOR);
+        }
+
+    }
+
+    /**
+     * Controls the leases on in-flight workflows: each instance renews the leases of the workflows it runs every
+     * {@code heartbeatIntervalInSec}, and a workflow whose lease has not been renewed for {@code ttlInSec} is claimed
+     * for recovery by another instance. The disk state store has no leases and goes by the last save instead, so
+     * {@code ttlInSec} should exceed the longest step timeout.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class Lease {
+
+        private static final long DEFAULT_TTL_IN_SEC = 300;
+        private static final long DEFAULT_HEARTBEAT_INTERVAL_IN_SEC = 60;
+
+        private final long ttlInSec;
+        private final long heartbeatIntervalInSec;
+
+        public Lease(final Long ttlInSec, final Long heartbeatIntervalInSec) {
+            this.ttlInSec = Optional.ofNullable(ttlInSec).orElse(DEFAULT_TTL_IN_SEC);
+            this.heartbeatIntervalInSec = Optional.ofNullable(heartbeatIntervalInSec)
+                    .orElse(DEFAULT_HEARTBEAT_INTERVAL_IN_SEC);
+        }
+
+    }
+
+    /**
+     * Controls the background sweeper of expired workflow state: when enabled, it runs every {@code intervalInSec},
+     * expiring up to {@code batchSize} workflows at a time.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class Sweeper {
+
+        private static final long DEFAULT_INTERVAL_IN_SEC = 300;
+        private static final int DEFAULT_BATCH_SIZE = 100;
+
+        private final boolean enabled;
+        private final long intervalInSec;
+        private final int batchSize;
+
+        public Sweeper(final Boolean enabled, final Long intervalInSec, final Integer batchSize) {
+            this.enabled = Optional.ofNullable(enabled).orElse(true);
+            this.intervalInSec = Optional.ofNullable(intervalInSec).orElse(DEFAULT_INTERVAL_IN_SEC);
+            this.batchSize = Optional.ofNullable(batchSize).orElse(DEFAULT_BATCH_SIZE);
+        }
+
+    }
+
+    /**
+     * Controls write-behind persistence of workflow state: when enabled, saves of in-flight workflows are coalesced
+     * per claim ticket and flushed every {@code flushIntervalInMs}, while terminal states are written through.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class WriteBehind {
+
+        private static final long DEFAULT_FLUSH_INTERVAL_IN_MS = 500;
+
+        private final boolean enabled;
+        private final long flushIntervalInMs;
+
+        public WriteBehind(final Boolean enabled, final Long flushIntervalInMs) {
+            this.enabled = Optional.ofNullable(enabled).orElse(false);
+            this.flushIntervalInMs = Optional.ofNullable(flushIntervalInMs).orElse(DEFAULT_FLUSH_INTERVAL_IN_MS);
+        }
+
     }
 }
@@ -25,20 +25,47 @@ package io.jrb.labs.webflux.common.module.workflow;
 
 import com.google.common.collect.Maps;
 import io.jrb.labs.webflux.common.module.ModuleJavaConfigSupport;
+import io.jrb.labs.webflux.common.module.workflow.service.FileWorkflowPayloadStore;
+import io.jrb.labs.webflux.common.module.workflow.service.GridFsWorkflowPayloadStore;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContextCodec;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowEventBroadcaster;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowFactory;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowPayloadStore;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowService;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.JavaWorkflowContextCodec;
+import io.jrb.labs.webflux.common.module.workflow.service.MeteredWorkflowStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.PayloadSplittingWorkflowStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.SmileWorkflowContextCodec;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowAdmissionController;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowEventBroadcaster;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowMetrics;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowRecoveryScanner;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowService;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStateDiskStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStateMongoStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStateSweeper;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStepPolicies;
+import io.jrb.labs.webflux.common.module.workflow.service.WriteBehindWorkflowStateRepository;
 import io.jrb.labs.webflux.common.module.workflow.web.CommonWorkflowHandler;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulers;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
 
@@ -70,6 +97,12 @@ public class WorkflowModuleJavaConfig extends ModuleJavaConfigSupport {
         ).andRoute(
                 GET("/api/v1/workflow/{workflowName}/{claimTicketNumber}/status"),
                 commonWorkflowHandler::getWorkflowStatus
+        ).andRoute(
+                GET("/api/v1/workflow/{workflowName}/{claimTicketNumber}/events"),
+                commonWorkflowHandler::getWorkflowEvents
+        ).andRoute(
+                GET("/api/v1/workflow/{workflowName}/{claimTicketNumber}/result"),
+                commonWorkflowHandler::getWorkflowResult
         );
     }
 
@@ -77,16 +110,172 @@ public class WorkflowModuleJavaConfig extends ModuleJavaConfigSupport {
     public IWorkflowService workflowService(
             final Map<String, IWorkflowFactory<? extends IWorkflowContext>> workflowFactories,
             final IWorkflowStateRepository workflowStateRepository,
-            final WorkflowModuleConfig workflowModuleConfig
+            final WorkflowModuleConfig workflowModuleConfig,
+            @Qualifier("workflowScheduler") final Scheduler workflowScheduler,
+            final IWorkflowEventBroadcaster workflowEventBroadcaster,
+            final WorkflowAdmissionController workflowAdmissionController,
+            final WorkflowMetrics workflowMetrics
     ) {
         final Map<String, String> workflowAliases = Optional.ofNullable(workflowModuleConfig.workflowAliases())
                 .orElse(Maps.newHashMap());
-        return new WorkflowService(workflowFactories, workflowAliases, workflowStateRepository);
+        return new WorkflowService(
+                workflowFactories,
+                workflowAliases,
+                workflowStateRepository,
+                workflowScheduler,
+                workflowEventBroadcaster,
+                workflowAdmissionController,
+                workflowMetrics
+        );
+    }
+
+    @Bean
+    public WorkflowAdmissionController workflowAdmissionController(
+            final WorkflowModuleConfig workflowModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        return new WorkflowAdmissionController(
+                workflowModuleConfig.admission(),
+                workflowModuleConfig.defaultAdmission(),
+                meterRegistry
+        );
+    }
+
+    @Bean
+    public WorkflowMetrics workflowMetrics(final MeterRegistry meterRegistry) {
+        return new WorkflowMetrics(meterRegistry);
     }
 
     @Bean
-    public IWorkflowStateRepository workflowStateRepository(final WorkflowModuleConfig workflowModuleConfig) {
-        return new WorkflowStateDiskStateRepository(workflowModuleConfig.baseDirectory());
+    public WorkflowRecoveryScanner workflowRecoveryScanner(
+            final IWorkflowStateRepository workflowStateRepository,
+            final IWorkflowService workflowService,
+            final WorkflowModuleConfig workflowModuleConfig
+    ) {
+        return new WorkflowRecoveryScanner(
+                workflowStateRepository,
+                workflowService,
+                workflowModuleConfig.recovery(),
+                workflowModuleConfig.lease(),
+                Clock.systemUTC()
+        );
+    }
+
+    @Bean
+    public WorkflowStateSweeper workflowStateSweeper(
+            final IWorkflowStateRepository workflowStateRepository,
+            final WorkflowModuleConfig workflowModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        return new WorkflowStateSweeper(
+                workflowStateRepository,
+                workflowModuleConfig.retention(),
+                workflowModuleConfig.defaultRetention(),
+                workflowModuleConfig.sweeper(),
+                meterRegistry,
+                Clock.systemUTC()
+        );
+    }
+
+    @Bean
+    public WorkflowStepPolicies workflowStepPolicies(final WorkflowModuleConfig workflowModuleConfig) {
+        return new WorkflowStepPolicies(workflowModuleConfig.stepPolicy(), workflowModuleConfig.defaultStepPolicy());
+    }
+
+    @Bean
+    public IWorkflowEventBroadcaster workflowEventBroadcaster(final WorkflowModuleConfig workflowModuleConfig) {
+        return new WorkflowEventBroadcaster(Duration.ofSeconds(workflowModuleConfig.eventRetentionInSec()));
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler workflowScheduler(final WorkflowModuleConfig workflowModuleConfig, final MeterRegistry meterRegistry) {
+        return BoundedSchedulers.create("workflow", workflowModuleConfig.scheduler(), meterRegistry);
+    }
+
+    @Bean
+    public IWorkflowContextCodec workflowContextCodec(final WorkflowModuleConfig workflowModuleConfig) {
+        log.info("Workflow state codec = {}", workflowModuleConfig.stateCodec());
+        switch (workflowModuleConfig.stateCodec()) {
+            case SMILE:
+                return new SmileWorkflowContextCodec();
+            case JAVA:
+            default:
+                return new JavaWorkflowContextCodec();
+        }
+    }
+
+    @Bean
+    public IWorkflowStateRepository workflowStateRepository(
+            final WorkflowModuleConfig workflowModuleConfig,
+            final IWorkflowContextCodec workflowContextCodec,
+            final ObjectProvider<ReactiveMongoTemplate> mongoTemplate,
+            final ObjectProvider<ReactiveMongoDatabaseFactory> mongoDatabaseFactory,
+            final MeterRegistry meterRegistry
+    ) {
+        final IWorkflowStateRepository recordRepository =
+                createStateRepository(workflowModuleConfig, workflowContextCodec, mongoTemplate);
+        final IWorkflowStateRepository stateRepository = createPayloadStore(
+                workflowModuleConfig, mongoTemplate, mongoDatabaseFactory
+        ).<IWorkflowStateRepository>map(payloadStore -> new PayloadSplittingWorkflowStateRepository(
+                recordRepository, payloadStore, workflowModuleConfig.payloadThreshold()
+        )).orElse(recordRepository);
+        final WorkflowModuleConfig.WriteBehind writeBehind = workflowModuleConfig.writeBehind();
+        if (writeBehind.enabled()) {
+            log.info("Workflow state write-behind enabled, flushIntervalInMs={}", writeBehind.flushIntervalInMs());
+            return new MeteredWorkflowStateRepository(new WriteBehindWorkflowStateRepository(
+                    stateRepository,
+                    workflowContextCodec,
+                    Duration.ofMillis(writeBehind.flushIntervalInMs())
+            ), meterRegistry);
+        }
+        return new MeteredWorkflowStateRepository(stateRepository, meterRegistry);
+    }
+
+    private Optional<IWorkflowPayloadStore> createPayloadStore(
+            final WorkflowModuleConfig workflowModuleConfig,
+            final ObjectProvider<ReactiveMongoTemplate> mongoTemplate,
+            final ObjectProvider<ReactiveMongoDatabaseFactory> mongoDatabaseFactory
+    ) {
+        log.info("Workflow payload store = {}", workflowModuleConfig.payloadStore());
+        switch (workflowModuleConfig.payloadStore()) {
+            case FILE:
+                return Optional.of(new FileWorkflowPayloadStore(
+                        workflowModuleConfig.baseDirectory(),
+                        workflowModuleConfig.stateFsync()
+                ));
+            case GRIDFS:
+                return Optional.of(new GridFsWorkflowPayloadStore(new ReactiveGridFsTemplate(
+                        mongoDatabaseFactory.getObject(),
+                        mongoTemplate.getObject().getConverter()
+                )));
+            case NONE:
+            default:
+                return Optional.empty();
+        }
+    }
+
+    private IWorkflowStateRepository createStateRepository(
+            final WorkflowModuleConfig workflowModuleConfig,
+            final IWorkflowContextCodec workflowContextCodec,
+            final ObjectProvider<ReactiveMongoTemplate> mongoTemplate
+    ) {
+        log.info("Workflow state store = {}", workflowModuleConfig.stateStore());
+        switch (workflowModuleConfig.stateStore()) {
+            case MONGO:
+                return new WorkflowStateMongoStateRepository(
+                        mongoTemplate.getObject(),
+                        workflowModuleConfig.stateCollection(),
+                        workflowContextCodec,
+                        workflowModuleConfig.instanceId()
+                );
+            case DISK:
+            default:
+                return new WorkflowStateDiskStateRepository(
+                        workflowModuleConfig.baseDirectory(),
+                        workflowContextCodec,
+                        workflowModuleConfig.stateFsync()
+                );
+        }
     }
 
 }
@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.model;
+
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.data.annotation.Id;
+
+import java.time.Instant;
+
+/**
+ * Defines the persisted form of a workflow context: its serialized state plus the few fields needed to query it, and
+ * the lease of the instance running it, renewed on each heartbeat.
+ */
+@Value
+@Builder(toBuilder = true)
+public class WorkflowStateDocument {
+
+    @Id
+    private final String id;
+
+    private final String workflowName;
+
+    private final WorkflowStatus status;
+
+    private final Instant updatedOn;
+
+    private final String owner;
+
+    private final Instant heartbeatOn;
+
+    private final byte[] state;
+
+}
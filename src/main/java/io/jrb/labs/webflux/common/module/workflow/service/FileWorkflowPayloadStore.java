@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Stores workflow payloads as files on the local disk. Payloads are written the same way as workflow states, through
+ * a temporary file atomically moved into place under the {@link WorkflowModuleConfig.Fsync fsync policy}, so a reader
+ * never sees a partly written payload. Payload files sit next to the state files, in the same sharded directories;
+ * payloads saved in the base directory itself, before sharding, are still read and deleted there.
+ */
+@Slf4j
+public class FileWorkflowPayloadStore implements IWorkflowPayloadStore {
+
+    private static final String PAYLOAD_FILE_SUFFIX = "_payload.raw";
+
+    private final Path baseDirectory;
+    private final Path stateDirectory;
+    private final WorkflowModuleConfig.Fsync fsync;
+    private final Scheduler ioScheduler;
+
+    public FileWorkflowPayloadStore(final String baseDirectory, final WorkflowModuleConfig.Fsync fsync) {
+        this(baseDirectory, fsync, Schedulers.boundedElastic());
+    }
+
+    public FileWorkflowPayloadStore(
+            final String baseDirectory,
+            final WorkflowModuleConfig.Fsync fsync,
+            final Scheduler ioScheduler
+    ) {
+        this.baseDirectory = Paths.get(baseDirectory);
+        this.stateDirectory = this.baseDirectory.resolve(WorkflowFileUtils.STATE_DIRECTORY);
+        this.fsync = fsync;
+        this.ioScheduler = ioScheduler;
+    }
+
+    @Override
+    public Mono<Void> delete(final String id) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                Files.deleteIfExists(getPayloadFile(id));
+                Files.deleteIfExists(getLegacyPayloadFile(id));
+            } catch (final Exception e) {
+                log.error("Unable to delete workflow payload (" + id + ")!", e);
+            }
+        }).subscribeOn(ioScheduler);
+    }
+
+    @Override
+    public Mono<byte[]> find(final String id) {
+        return Mono.fromCallable(() -> {
+            try {
+                final Path payloadFile = getPayloadFile(id);
+                return Files.readAllBytes(Files.exists(payloadFile) ? payloadFile : getLegacyPayloadFile(id));
+            } catch (final NoSuchFileException e) {
+                return null;
+            }
+        }).subscribeOn(ioScheduler);
+    }
+
+    @Override
+    public Mono<Void> save(final String id, final byte[] payload) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                WorkflowFileUtils.writeAtomically(getPayloadFile(id), payload, fsync);
+                Files.deleteIfExists(getLegacyPayloadFile(id));
+            } catch (final Exception e) {
+                log.error("Unable to save workflow payload (" + id + ")!", e);
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }).subscribeOn(ioScheduler);
+    }
+
+    private Path getPayloadFile(final String id) {
+        return WorkflowFileUtils.shardedFile(stateDirectory, id, PAYLOAD_FILE_SUFFIX);
+    }
+
+    private Path getLegacyPayloadFile(final String id) {
+        return baseDirectory.resolve(id + PAYLOAD_FILE_SUFFIX);
+    }
+
+}
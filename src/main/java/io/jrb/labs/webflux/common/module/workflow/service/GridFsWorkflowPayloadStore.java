@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsResource;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/**
+ * Stores workflow payloads in MongoDB GridFS, one file per payload, named after the payload identifier. A new payload
+ * is stored as a new file before the older files of the same name are deleted, and reads go to the most recent file,
+ * so the previous payload stays readable until its replacement is complete.
+ */
+public class GridFsWorkflowPayloadStore implements IWorkflowPayloadStore {
+
+    private static final String ID = "_id";
+    private static final String UPLOAD_DATE = "uploadDate";
+
+    private final ReactiveGridFsTemplate gridFsTemplate;
+
+    public GridFsWorkflowPayloadStore(final ReactiveGridFsTemplate gridFsTemplate) {
+        this.gridFsTemplate = required(gridFsTemplate, "gridFsTemplate");
+    }
+
+    @Override
+    public Mono<Void> delete(final String id) {
+        return gridFsTemplate.delete(byFilename(id));
+    }
+
+    @Override
+    public Mono<byte[]> find(final String id) {
+        return gridFsTemplate.find(byFilename(id).with(Sort.by(Sort.Direction.DESC, UPLOAD_DATE)))
+                .next()
+                .flatMap(gridFsTemplate::getResource)
+                .flatMapMany(ReactiveGridFsResource::getDownloadStream)
+                .as(DataBufferUtils::join)
+                .map(buffer -> {
+                    final byte[] payload = new byte[buffer.readableByteCount()];
+                    buffer.read(payload);
+                    DataBufferUtils.release(buffer);
+                    return payload;
+                });
+    }
+
+    @Override
+    public Mono<Void> save(final String id, final byte[] payload) {
+        final Flux<DataBuffer> content = Flux.just(new DefaultDataBufferFactory().wrap(payload));
+        return gridFsTemplate.store(content, id)
+                .flatMap(fileId -> gridFsTemplate.delete(Query.query(whereFilename().is(id).and(ID).ne(fileId))));
+    }
+
+    private Query byFilename(final String id) {
+        return Query.query(whereFilename().is(id));
+    }
+
+}
@@ -23,10 +23,63 @@
  */
 package io.jrb.labs.webflux.common.module.workflow.service;
 
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableSet;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
+
 public interface ICommand<C extends IWorkflowContext> {
 
     Mono<C> run(C context);
 
+    /**
+     * Undoes the effects of a completed run, when a later step of the same workflow fails. Steps are compensated in
+     * the reverse order they completed.
+     *
+     * @param context the workflow context
+     * @return a Mono that completes once compensated
+     */
+    default Mono<Void> compensate(final C context) {
+        return Mono.empty();
+    }
+
+    /**
+     * Indicates the properties this command provides are persisted with the context, so that a workflow resumed after
+     * a restart may skip the command once completed. A command providing transient properties runs again on resume.
+     *
+     * @return true when the provided properties are persisted
+     */
+    default boolean isDurable() {
+        return true;
+    }
+
+    /**
+     * Names this command for selecting its step policy, e.g. {@code find-set-list} for a FindSetListCommand.
+     *
+     * @return the step name
+     */
+    default String stepName() {
+        final String base = getClass().getSimpleName().replaceFirst("Command$", "");
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_HYPHEN, base);
+    }
+
+    /**
+     * Names the context properties this command reads, for ordering steps within a workflow graph.
+     *
+     * @return the required context properties
+     */
+    default Set<String> requires() {
+        return ImmutableSet.of();
+    }
+
+    /**
+     * Names the context properties this command sets, for ordering steps within a workflow graph.
+     *
+     * @return the provided context properties
+     */
+    default Set<String> provides() {
+        return ImmutableSet.of();
+    }
+
 }
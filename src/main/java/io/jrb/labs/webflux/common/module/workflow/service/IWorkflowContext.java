@@ -26,6 +26,7 @@ package io.jrb.labs.webflux.common.module.workflow.service;
 import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
 
 import java.io.Serializable;
+import java.util.Set;
 
 public interface IWorkflowContext extends Serializable {
 
@@ -36,4 +37,25 @@ public interface IWorkflowContext extends Serializable {
     WorkflowStatus getStatus();
 
     IWorkflowContext setStatus(WorkflowStatus status);
+
+    /**
+     * Names the steps this workflow has completed and persisted, so that a workflow interrupted by a restart resumes
+     * from the steps still outstanding.
+     *
+     * @return the completed step names; null before any step has completed
+     */
+    Set<String> getCompletedSteps();
+
+    IWorkflowContext setCompletedSteps(Set<String> completedSteps);
+
+    /**
+     * Indicates the workflow runs detached from the request that started it, so its results must be persisted
+     * rather than streamed back to the caller.
+     *
+     * @return true when running detached
+     */
+    boolean isDetached();
+
+    IWorkflowContext setDetached(boolean detached);
+
 }
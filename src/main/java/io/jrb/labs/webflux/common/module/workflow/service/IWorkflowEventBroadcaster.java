@@ -0,0 +1,47 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.Optional;
+
+/**
+ * Defines an in-memory broadcaster of the status transitions and step completions of running workflows.
+ */
+public interface IWorkflowEventBroadcaster {
+
+    /**
+     * Finds the event stream of a claim ticket known to this node. The stream replays the events published so far,
+     * and completes after the workflow reaches a terminal status.
+     *
+     * @param claimTicketNumber the claim ticket
+     * @return the event stream, if the claim ticket is known
+     */
+    Optional<Flux<WorkflowEvent>> events(String claimTicketNumber);
+
+    void publish(WorkflowEvent event);
+
+}
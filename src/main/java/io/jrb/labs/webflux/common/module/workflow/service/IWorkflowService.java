@@ -24,15 +24,38 @@
 package io.jrb.labs.webflux.common.module.workflow.service;
 
 import io.jrb.labs.webflux.common.module.workflow.model.ClaimTicket;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface IWorkflowService {
 
     Mono<ClaimTicket> deleteWorkflowContext(String workflowName, String claimTicketNumber);
 
+    /**
+     * Streams the status transitions and step completions of a workflow. A claim ticket unknown to the in-memory
+     * broadcaster yields a single event with its persisted status.
+     *
+     * @param claimTicketNumber the claim ticket
+     * @return the workflow events
+     */
+    Flux<WorkflowEvent> getWorkflowEvents(String claimTicketNumber);
+
+    Mono<IWorkflowContext> getWorkflowResult(String workflowName, String claimTicketNumber);
+
     Mono<ClaimTicket> getWorkflowStatus(String claimTicketNumber);
 
     <C extends IWorkflowContext> Mono<C> runWorkflow(C initialContext, Class<C> contextClass);
 
+    /**
+     * Starts a workflow detached from the caller, returning its claim ticket once the initial state is saved. The
+     * workflow itself runs on the workflow scheduler; its progress is polled through the status of the claim ticket.
+     *
+     * @param initialContext the initial workflow context
+     * @param <C> the type of workflow context
+     * @return the claim ticket of the submitted workflow
+     */
+    <C extends IWorkflowContext> Mono<ClaimTicket> submitWorkflow(C initialContext);
+
 }
 
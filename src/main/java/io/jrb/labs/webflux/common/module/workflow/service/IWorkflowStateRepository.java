@@ -23,14 +23,124 @@
  */
 package io.jrb.labs.webflux.common.module.workflow.service;
 
-import java.util.Optional;
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Defines a reactive store of workflow contexts, keyed by claim ticket.
+ */
 public interface IWorkflowStateRepository {
 
-    void delete(String key);
+    /**
+     * Claims the workflow contexts having one of the given statuses whose lease was last renewed before the given
+     * instant, so that only one instance recovers each of them. Stores shared by several instances must override
+     * this with a conditional update; by default, a context is claimed once it has not been saved since the instant.
+     *
+     * @param statuses the statuses to match
+     * @param staleBefore the instant the lease must have been last renewed before
+     * @return the claim tickets of the claimed contexts
+     */
+    default Flux<String> claimStale(final Set<WorkflowStatus> statuses, final Instant staleBefore) {
+        return findSummariesUpdatedBefore(statuses, staleBefore).map(WorkflowStateSummary::getClaimTicket);
+    }
+
+    /**
+     * Counts the stored workflow contexts; stores able to count without reading each context should override this.
+     *
+     * @return the number of stored workflow contexts
+     */
+    default Mono<Long> count() {
+        return findSummariesByStatus(ImmutableSet.copyOf(WorkflowStatus.values())).count();
+    }
+
+    Mono<Void> delete(String key);
+
+    /**
+     * Deletes several workflow contexts at once; stores able to delete in bulk should override this.
+     *
+     * @param keys the claim tickets
+     * @return a Mono that completes once every context is deleted
+     */
+    default Mono<Void> deleteAll(final Collection<String> keys) {
+        return Flux.fromIterable(keys).concatMap(this::delete).then();
+    }
+
+    /**
+     * Deletes the payload kept apart from a workflow context, if any, leaving the context itself in place.
+     *
+     * @param key the claim ticket
+     * @return a Mono that completes once the payload is deleted
+     */
+    default Mono<Void> deletePayload(final String key) {
+        return Mono.empty();
+    }
+
+    <C extends IWorkflowContext> Mono<C> find(String key, Class<C> contextClass);
+
+    /**
+     * Finds the claim tickets of the stored workflow contexts having one of the given statuses.
+     *
+     * @param statuses the statuses to match
+     * @return the matching claim tickets
+     */
+    default Flux<String> findKeysByStatus(final Set<WorkflowStatus> statuses) {
+        return findSummariesByStatus(statuses).map(WorkflowStateSummary::getClaimTicket);
+    }
+
+    /**
+     * Summarizes the stored workflow contexts having one of the given statuses, including when each was last saved.
+     *
+     * @param statuses the statuses to match
+     * @return the matching summaries
+     */
+    Flux<WorkflowStateSummary> findSummariesByStatus(Set<WorkflowStatus> statuses);
+
+    /**
+     * Summarizes the stored workflow contexts having one of the given statuses and last saved before the given
+     * instant; stores able to skip newer contexts without reading them should override this.
+     *
+     * @param statuses the statuses to match
+     * @param updatedBefore the instant the contexts must have been last saved before
+     * @return the matching summaries
+     */
+    default Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return findSummariesByStatus(statuses)
+                .filter(summary -> summary.getUpdatedOn() != null && summary.getUpdatedOn().isBefore(updatedBefore));
+    }
+
+    /**
+     * Finds a workflow context without loading any payload stored apart from it; intended for status reads.
+     *
+     * @param key the claim ticket
+     * @param contextClass the expected type of the context
+     * @param <C> the expected type of the context
+     * @return the workflow context, possibly without its payload
+     */
+    default <C extends IWorkflowContext> Mono<C> findMetadata(final String key, final Class<C> contextClass) {
+        return find(key, contextClass);
+    }
 
-    <C extends IWorkflowContext> Optional<C> find(String key, Class<C> contextClass);
+    /**
+     * Renews the lease of this instance on the stored workflow contexts it owns having one of the given statuses.
+     * Stores shared by several instances should override this; by default, there are no leases to renew.
+     *
+     * @param statuses the statuses to match
+     * @return a Mono that completes once the leases are renewed
+     */
+    default Mono<Void> renewLeases(final Set<WorkflowStatus> statuses) {
+        return Mono.empty();
+    }
 
-    void save(String key, IWorkflowContext context);
+    Mono<Void> save(String key, IWorkflowContext context);
 
 }
@@ -0,0 +1,144 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Decorates a workflow state store with counters of its reads, saves and deletes, tagged by operation and outcome.
+ * Closing the decorator closes the store it decorates, so a write-behind store still flushes at shutdown.
+ */
+public class MeteredWorkflowStateRepository implements IWorkflowStateRepository, AutoCloseable {
+
+    private final IWorkflowStateRepository delegate;
+    private final MeterRegistry meterRegistry;
+
+    public MeteredWorkflowStateRepository(final IWorkflowStateRepository delegate, final MeterRegistry meterRegistry) {
+        this.delegate = required(delegate, "delegate");
+        this.meterRegistry = required(meterRegistry, "meterRegistry");
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return count("count", delegate.count());
+    }
+
+    @Override
+    public Flux<String> claimStale(final Set<WorkflowStatus> statuses, final Instant staleBefore) {
+        return delegate.claimStale(statuses, staleBefore)
+                .doOnComplete(() -> counter("claimStale", "success").increment())
+                .doOnError(e -> counter("claimStale", "error").increment());
+    }
+
+    @Override
+    public Mono<Void> delete(final String key) {
+        return count("delete", delegate.delete(key));
+    }
+
+    @Override
+    public Mono<Void> deletePayload(final String key) {
+        return count("deletePayload", delegate.deletePayload(key));
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> find(final String key, final Class<C> contextClass) {
+        return count("find", delegate.find(key, contextClass));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(final Collection<String> keys) {
+        return count("deleteAll", delegate.deleteAll(keys));
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesByStatus(final Set<WorkflowStatus> statuses) {
+        return delegate.findSummariesByStatus(statuses)
+                .doOnComplete(() -> counter("findSummariesByStatus", "success").increment())
+                .doOnError(e -> counter("findSummariesByStatus", "error").increment());
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return delegate.findSummariesUpdatedBefore(statuses, updatedBefore)
+                .doOnComplete(() -> counter("findSummariesUpdatedBefore", "success").increment())
+                .doOnError(e -> counter("findSummariesUpdatedBefore", "error").increment());
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> findMetadata(final String key, final Class<C> contextClass) {
+        return count("findMetadata", delegate.findMetadata(key, contextClass));
+    }
+
+    @Override
+    public Mono<Void> renewLeases(final Set<WorkflowStatus> statuses) {
+        return count("renewLeases", delegate.renewLeases(statuses));
+    }
+
+    @Override
+    public Mono<Void> save(final String key, final IWorkflowContext context) {
+        return count("save", delegate.save(key, context));
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) delegate).close();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new RuntimeException("Unable to close workflow state store", e);
+            }
+        }
+    }
+
+    private <T> Mono<T> count(final String operation, final Mono<T> mono) {
+        return mono
+                .doOnSuccess(v -> counter(operation, "success").increment())
+                .doOnError(e -> counter(operation, "error").increment());
+    }
+
+    private Counter counter(final String operation, final String outcome) {
+        return Counter.builder("workflow.state")
+                .description("Operations on the workflow state store")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
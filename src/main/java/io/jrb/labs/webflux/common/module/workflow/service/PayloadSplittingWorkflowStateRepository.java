@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Set;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Decorates a workflow state store so that the payload of a {@link IPayloadWorkflowContext} at or above a size
+ * threshold is kept in a separate payload store, referenced from the state record by identifier. Reading metadata
+ * only, such as a status, then costs nothing in payload size. A payload is only stored again when the context refers
+ * to another payload array than the one last stored for its claim ticket; the arrays are only weakly referenced.
+ */
+public class PayloadSplittingWorkflowStateRepository implements IWorkflowStateRepository {
+
+    private final IWorkflowStateRepository delegate;
+    private final IWorkflowPayloadStore payloadStore;
+    private final int threshold;
+    private final Cache<String, byte[]> storedPayloads = CacheBuilder.newBuilder().weakValues().build();
+
+    public PayloadSplittingWorkflowStateRepository(
+            final IWorkflowStateRepository delegate,
+            final IWorkflowPayloadStore payloadStore,
+            final int threshold
+    ) {
+        this.delegate = required(delegate, "delegate");
+        this.payloadStore = required(payloadStore, "payloadStore");
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public Flux<String> claimStale(final Set<WorkflowStatus> statuses, final Instant staleBefore) {
+        return delegate.claimStale(statuses, staleBefore);
+    }
+
+    @Override
+    public Mono<Void> delete(final String key) {
+        return Mono.fromRunnable(() -> storedPayloads.invalidate(key))
+                .then(payloadStore.delete(key))
+                .then(delegate.delete(key));
+    }
+
+    @Override
+    public Mono<Void> deletePayload(final String key) {
+        return Mono.fromRunnable(() -> storedPayloads.invalidate(key))
+                .then(payloadStore.delete(key))
+                .then(delegate.deletePayload(key));
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> find(final String key, final Class<C> contextClass) {
+        return delegate.find(key, contextClass).flatMap(context -> {
+            if (context instanceof IPayloadWorkflowContext) {
+                final IPayloadWorkflowContext payloadContext = (IPayloadWorkflowContext) context;
+                if (payloadContext.getContent() == null && payloadContext.getPayloadId() != null) {
+                    return payloadStore.find(payloadContext.getPayloadId())
+                            .doOnNext(payload -> storedPayloads.put(key, payload))
+                            .map(payload -> contextClass.cast(payloadContext.setContent(payload)))
+                            .defaultIfEmpty(context);
+                }
+            }
+            return Mono.just(context);
+        });
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesByStatus(final Set<WorkflowStatus> statuses) {
+        return delegate.findSummariesByStatus(statuses);
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return delegate.findSummariesUpdatedBefore(statuses, updatedBefore);
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> findMetadata(final String key, final Class<C> contextClass) {
+        return delegate.findMetadata(key, contextClass);
+    }
+
+    @Override
+    public Mono<Void> renewLeases(final Set<WorkflowStatus> statuses) {
+        return delegate.renewLeases(statuses);
+    }
+
+    @Override
+    public Mono<Void> save(final String key, final IWorkflowContext context) {
+        if (context instanceof IPayloadWorkflowContext) {
+            final IPayloadWorkflowContext payloadContext = (IPayloadWorkflowContext) context;
+            final byte[] payload = payloadContext.getContent();
+            if (payload != null && payload.length >= threshold) {
+                final Mono<Void> storePayload = (storedPayloads.getIfPresent(key) == payload)
+                        ? Mono.empty()
+                        : payloadStore.save(key, payload).doOnSuccess(v -> storedPayloads.put(key, payload));
+                return storePayload.then(delegate.save(key, payloadContext.withoutPayload(key)));
+            }
+        }
+        return delegate.save(key, context);
+    }
+
+}
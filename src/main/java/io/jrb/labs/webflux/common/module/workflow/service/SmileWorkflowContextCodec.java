@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.std.FromStringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes workflow contexts as Jackson Smile, a compact binary JSON format. Contexts are mapped by field, so the
+ * transient fields of a context are skipped, and binary content is written as raw rather than 7-bit bytes. Each
+ * record starts with the name of the concrete context class, which must be a subtype of the class requested on
+ * decoding.
+ */
+public class SmileWorkflowContextCodec implements IWorkflowContextCodec {
+
+    private final ObjectMapper objectMapper;
+
+    public SmileWorkflowContextCodec() {
+        final SmileFactory smileFactory = new SmileFactory()
+                .configure(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT, false);
+        this.objectMapper = new ObjectMapper(smileFactory)
+                .setVisibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.SETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.IS_GETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .registerModule(new SimpleModule()
+                        .addSerializer(MediaType.class, ToStringSerializer.instance)
+                        .addDeserializer(MediaType.class, new MediaTypeDeserializer()));
+    }
+
+    @Override
+    public byte[] encode(final IWorkflowContext context) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new DataOutputStream(bytes).writeUTF(context.getClass().getName());
+            objectMapper.writeValue(bytes, context);
+            return bytes.toByteArray();
+        } catch (final IOException e) {
+            throw new RuntimeException("Unable to encode workflow context", e);
+        }
+    }
+
+    @Override
+    public <C extends IWorkflowContext> C decode(final byte[] data, final Class<C> contextClass) {
+        try {
+            final ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+            final String className = new DataInputStream(bytes).readUTF();
+            final Class<?> storedClass = Class.forName(className, false, getClass().getClassLoader());
+            if (!contextClass.isAssignableFrom(storedClass)) {
+                throw new IllegalArgumentException(
+                        "Stored context " + className + " is not a " + contextClass.getName());
+            }
+            return contextClass.cast(objectMapper.readValue(bytes, storedClass));
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Unable to decode workflow context", e);
+        }
+    }
+
+    private static class MediaTypeDeserializer extends FromStringDeserializer<MediaType> {
+
+        MediaTypeDeserializer() {
+            super(MediaType.class);
+        }
+
+        @Override
+        protected MediaType _deserialize(final String value, final DeserializationContext context) {
+            return MediaType.parseMediaType(value);
+        }
+
+    }
+
+}
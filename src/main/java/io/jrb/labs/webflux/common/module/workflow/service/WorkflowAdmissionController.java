@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Limits, per workflow, how many workflows run at once and how many more may wait for a slot. Beyond both limits a
+ * workflow is rejected at once with a {@link WorkflowRejectedException}. Admitted, queued and rejected workflows are
+ * counted, and the running and waiting workflows gauged, per workflow name.
+ */
+public class WorkflowAdmissionController {
+
+    private final Map<String, WorkflowModuleConfig.Admission> admissions;
+    private final WorkflowModuleConfig.Admission defaultAdmission;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    public WorkflowAdmissionController(
+            final Map<String, WorkflowModuleConfig.Admission> admissions,
+            final WorkflowModuleConfig.Admission defaultAdmission,
+            final MeterRegistry meterRegistry
+    ) {
+        this.admissions = required(admissions, "admissions");
+        this.defaultAdmission = required(defaultAdmission, "defaultAdmission");
+        this.meterRegistry = required(meterRegistry, "meterRegistry");
+    }
+
+    /**
+     * Runs work once the workflow is admitted, keeping its slot until the work terminates or is cancelled.
+     *
+     * @param workflowName the name of the workflow
+     * @param work the workflow to run
+     * @param <T> the type of result
+     * @return the result of the work, or a {@link WorkflowRejectedException} when the workflow is at capacity
+     */
+    public <T> Mono<T> admit(final String workflowName, final Supplier<Mono<T>> work) {
+        return Mono.defer(() -> {
+            final Ticket ticket = enter(workflowName);
+            return ticket.granted()
+                    .then(Mono.defer(work))
+                    .doFinally(s -> ticket.exit());
+        });
+    }
+
+    /**
+     * Enters the workflow queue. The caller waits for {@link Ticket#granted()} before running, and must always call
+     * {@link Ticket#exit()} afterwards, whether or not the slot was granted.
+     *
+     * @param workflowName the name of the workflow
+     * @return the admission ticket
+     * @throws WorkflowRejectedException when the workflow is at capacity
+     */
+    public Ticket enter(final String workflowName) {
+        return gates.computeIfAbsent(workflowName, this::createGate).enter();
+    }
+
+    private Gate createGate(final String workflowName) {
+        final WorkflowModuleConfig.Admission admission =
+                Optional.ofNullable(admissions.get(workflowName)).orElse(defaultAdmission);
+        return new Gate(workflowName, admission);
+    }
+
+    private final class Gate {
+
+        private final String workflowName;
+        private final WorkflowModuleConfig.Admission admission;
+        private final Deque<Ticket> waiting = new ArrayDeque<>();
+        private final Counter admitted;
+        private final Counter queued;
+        private final Counter rejected;
+        private int running;
+
+        private Gate(final String workflowName, final WorkflowModuleConfig.Admission admission) {
+            this.workflowName = workflowName;
+            this.admission = admission;
+            this.admitted = counter("admitted");
+            this.queued = counter("queued");
+            this.rejected = counter("rejected");
+            Gauge.builder("workflow.admission.running", this, g -> g.count(false))
+                    .tag("workflow", workflowName)
+                    .register(meterRegistry);
+            Gauge.builder("workflow.admission.waiting", this, g -> g.count(true))
+                    .tag("workflow", workflowName)
+                    .register(meterRegistry);
+        }
+
+        private Ticket enter() {
+            final Ticket ticket = new Ticket(this);
+            synchronized (this) {
+                if (running < admission.maxConcurrent()) {
+                    running++;
+                    ticket.granted = true;
+                } else if (waiting.size() < admission.maxQueued()) {
+                    waiting.add(ticket);
+                } else {
+                    rejected.increment();
+                    throw new WorkflowRejectedException(workflowName, admission.retryAfterInSec());
+                }
+            }
+            if (ticket.granted) {
+                admitted.increment();
+                ticket.processor.onComplete();
+            } else {
+                queued.increment();
+            }
+            return ticket;
+        }
+
+        private void exit(final Ticket ticket) {
+            final Ticket next;
+            synchronized (this) {
+                if (ticket.exited) {
+                    return;
+                }
+                ticket.exited = true;
+                if (!ticket.granted) {
+                    waiting.remove(ticket);
+                    return;
+                }
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                } else {
+                    next.granted = true;
+                }
+            }
+            if (next != null) {
+                admitted.increment();
+                next.processor.onComplete();
+            }
+        }
+
+        private synchronized double count(final boolean waiters) {
+            return waiters ? waiting.size() : running;
+        }
+
+        private Counter counter(final String outcome) {
+            return Counter.builder("workflow.admission")
+                    .description("Workflows admitted, queued or rejected by admission control")
+                    .tag("workflow", workflowName)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+    }
+
+    /**
+     * A place in the queue of a workflow, granted a slot once one frees up.
+     */
+    public static final class Ticket {
+
+        private final Gate gate;
+        private final MonoProcessor<Void> processor = MonoProcessor.create();
+        private boolean granted;
+        private boolean exited;
+
+        private Ticket(final Gate gate) {
+            this.gate = gate;
+        }
+
+        public Mono<Void> granted() {
+            return processor;
+        }
+
+        public void exit() {
+            gate.exit(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.ReplayProcessor;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Broadcasts workflow events through one replaying sink per claim ticket. Sinks are dropped once they have been idle
+ * for the retention period, which leaves late subscribers time to replay the events of a finished workflow.
+ */
+@Slf4j
+public class WorkflowEventBroadcaster implements IWorkflowEventBroadcaster {
+
+    private static final int HISTORY_SIZE = 64;
+
+    private final Cache<String, ReplayProcessor<WorkflowEvent>> processors;
+
+    public WorkflowEventBroadcaster(final Duration retention) {
+        required(retention, "retention");
+        this.processors = CacheBuilder.newBuilder()
+                .expireAfterAccess(retention)
+                .removalListener((RemovalListener<String, ReplayProcessor<WorkflowEvent>>) n -> complete(n.getValue()))
+                .build();
+    }
+
+    @Override
+    public Optional<Flux<WorkflowEvent>> events(final String claimTicketNumber) {
+        return Optional.ofNullable(processors.getIfPresent(claimTicketNumber)).map(ReplayProcessor::hide);
+    }
+
+    @Override
+    public void publish(final WorkflowEvent event) {
+        try {
+            final ReplayProcessor<WorkflowEvent> processor =
+                    processors.get(event.getClaimTicket(), () -> ReplayProcessor.create(HISTORY_SIZE));
+            synchronized (processor) {
+                if (!processor.isTerminated()) {
+                    processor.onNext(event);
+                }
+            }
+            if (event.isTerminal()) {
+                complete(processor);
+            }
+        } catch (final ExecutionException e) {
+            log.error("Unable to publish workflow event " + event, e);
+        }
+    }
+
+    private static void complete(final ReplayProcessor<WorkflowEvent> processor) {
+        synchronized (processor) {
+            if (!processor.isTerminated()) {
+                processor.onComplete();
+            }
+        }
+    }
+
+}
@@ -23,39 +23,226 @@
  */
 package io.jrb.labs.webflux.common.module.workflow.service;
 
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
 import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
 public abstract class WorkflowFactorySupport<C extends IWorkflowContext> implements IWorkflowFactory<C> {
 
     private final Class<C> contextClass;
     private final IWorkflowStateRepository workflowStateRepository;
+    private final IWorkflowEventBroadcaster workflowEventBroadcaster;
+    private final WorkflowMetrics workflowMetrics;
+    private final WorkflowStepPolicies workflowStepPolicies;
 
-    public WorkflowFactorySupport(final Class<C> contextClass, final IWorkflowStateRepository workflowStateRepository) {
+    public WorkflowFactorySupport(
+            final Class<C> contextClass,
+            final IWorkflowStateRepository workflowStateRepository,
+            final IWorkflowEventBroadcaster workflowEventBroadcaster,
+            final WorkflowMetrics workflowMetrics,
+            final WorkflowStepPolicies workflowStepPolicies
+    ) {
         this.contextClass = contextClass;
         this.workflowStateRepository = workflowStateRepository;
+        this.workflowEventBroadcaster = workflowEventBroadcaster;
+        this.workflowMetrics = workflowMetrics;
+        this.workflowStepPolicies = workflowStepPolicies;
     }
 
     @Override
     public final Mono<C> createWorkflow(final C initialContext) {
         return Mono.just(initialContext)
-                .map(ctx -> setStatus(ctx, WorkflowStatus.RUNNING))
+                .flatMap(ctx -> setStatus(ctx, WorkflowStatus.RUNNING))
                 .flatMap(this::defineWorkflow)
-                .map(ctx -> setStatus(ctx, WorkflowStatus.COMPLETED));
+                .flatMap(ctx -> setStatus(ctx, WorkflowStatus.COMPLETED))
+                .onErrorResume(e -> fail(initialContext, e));
     }
 
     protected abstract Mono<C> defineWorkflow(final C context);
 
-    protected Mono<C> runStep(final C context, final ICommand<? super C> command) {
-        return command.run(context)
-                .doOnSuccess(ctx -> workflowStateRepository.save(ctx.getClaimTicket(), ctx))
-                .cast(contextClass);
+    /**
+     * Runs commands as a graph, ordered by the context properties each one {@link ICommand#requires() requires} and
+     * {@link ICommand#provides() provides}. Commands whose requirements are met run concurrently against the same
+     * context, and the state is saved once they have all finished, before any dependent command starts. A
+     * requirement no command provides is expected to be present in the initial context.
+     * <p>
+     * A command may only set the context properties it provides, and the commands of one stage must provide distinct
+     * properties, so that concurrent commands never write the same property. Each command records its completion
+     * under a lock the end of its stage then takes, so everything a command wrote to the context happens before the
+     * state is saved and before the next stage runs, whichever threads the commands completed on.
+     * <p> Should a command fail, the
+     * commands already completed are {@link ICommand#compensate(IWorkflowContext) compensated}, most recent first.
+     * Each stage records its {@link ICommand#isDurable() durable} commands as completed steps of the context, and
+     * commands already recorded are skipped, so a workflow recovered after a restart resumes from the steps still
+     * outstanding. A command that is not durable only runs again when it provides something an outstanding command
+     * requires, or when no command requires what it provides.
+     *
+     * @param context the workflow context
+     * @param commands the commands, in any order
+     * @return the context once every command has run
+     * @throws IllegalArgumentException if the commands depend on each other in a cycle, or if commands of a stage
+     * provide the same property
+     */
+    protected final Mono<C> runSteps(final C context, final List<ICommand<? super C>> commands) {
+        final Set<String> completedSteps = new LinkedHashSet<>(
+                Optional.ofNullable(context.getCompletedSteps()).orElse(Collections.emptySet())
+        );
+        final List<ICommand<? super C>> outstanding = selectOutstanding(commands, completedSteps);
+        final Deque<ICommand<? super C>> completed = new ArrayDeque<>();
+        final Object stageLock = new Object();
+        return Flux.fromIterable(planStages(outstanding))
+                .concatMap(stage -> Flux.fromIterable(stage)
+                        .flatMap(command -> runCommand(context, command).doOnNext(ctx -> {
+                            synchronized (stageLock) {
+                                completed.push(command);
+                            }
+                        }))
+                        .then(Mono.defer(() -> {
+                            synchronized (stageLock) {
+                                stage.stream()
+                                        .filter(ICommand::isDurable)
+                                        .forEach(command -> completedSteps.add(command.stepName()));
+                                context.setCompletedSteps(new LinkedHashSet<>(completedSteps));
+                            }
+                            return saveState(context);
+                        })))
+                .then(Mono.just(context))
+                .onErrorResume(e -> Mono.defer(() -> {
+                    synchronized (stageLock) {
+                        return compensate(context, new ArrayList<>(completed));
+                    }
+                }).then(Mono.error(e)));
+    }
+
+    private Mono<Void> compensate(final C context, final List<ICommand<? super C>> completed) {
+        return Flux.fromIterable(completed)
+                .concatMap(command -> command.compensate(context)
+                        .onErrorResume(e -> {
+                            log.error("Unable to compensate workflow step " + command.stepName()
+                                    + " - claimTicket = " + context.getClaimTicket(), e);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<C> fail(final C context, final Throwable cause) {
+        context.setStatus(WorkflowStatus.FAILED);
+        workflowMetrics.statusChanged(context.getClaimTicket(), WorkflowStatus.FAILED);
+        return saveState(context)
+                .onErrorResume(e -> {
+                    log.error("Unable to persist failed workflow - claimTicket = " + context.getClaimTicket(), e);
+                    return Mono.just(context);
+                })
+                .doOnNext(ctx -> publishEvent(ctx, WorkflowStatus.FAILED, null, null))
+                .then(Mono.error(cause));
+    }
+
+    private List<ICommand<? super C>> selectOutstanding(
+            final List<ICommand<? super C>> commands,
+            final Set<String> completedSteps
+    ) {
+        final Set<ICommand<? super C>> outstanding = new LinkedHashSet<>();
+        for (final ICommand<? super C> command : commands) {
+            if (command.isDurable() ? !completedSteps.contains(command.stepName()) : !feedsAny(command, commands)) {
+                outstanding.add(command);
+            }
+        }
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (final ICommand<? super C> command : commands) {
+                if (!outstanding.contains(command) && !command.isDurable() && feedsAny(command, outstanding)) {
+                    grown = outstanding.add(command);
+                }
+            }
+        }
+        return commands.stream().filter(outstanding::contains).collect(Collectors.toList());
+    }
+
+    private boolean feedsAny(final ICommand<? super C> command, final Collection<ICommand<? super C>> others) {
+        return others.stream()
+                .filter(other -> other != command)
+                .anyMatch(other -> command.provides().stream().anyMatch(other.requires()::contains));
+    }
+
+    private List<List<ICommand<? super C>>> planStages(final List<ICommand<? super C>> commands) {
+        final List<List<ICommand<? super C>>> stages = new ArrayList<>();
+        final List<ICommand<? super C>> pending = new LinkedList<>(commands);
+        while (!pending.isEmpty()) {
+            final List<ICommand<? super C>> stage = pending.stream()
+                    .filter(command -> isReady(command, pending))
+                    .collect(Collectors.toList());
+            if (stage.isEmpty()) {
+                throw new IllegalArgumentException("Workflow steps depend on each other in a cycle - " + pending);
+            }
+            final Set<String> provided = new HashSet<>();
+            stage.stream().flatMap(command -> command.provides().stream()).forEach(property -> {
+                if (!provided.add(property)) {
+                    throw new IllegalArgumentException(
+                            "Concurrent workflow steps both provide " + property + " - " + stage);
+                }
+            });
+            pending.removeAll(stage);
+            stages.add(stage);
+        }
+        return stages;
+    }
+
+    private boolean isReady(final ICommand<? super C> command, final List<ICommand<? super C>> pending) {
+        final Set<String> requires = command.requires();
+        return pending.stream()
+                .filter(other -> other != command)
+                .noneMatch(other -> other.provides().stream().anyMatch(requires::contains));
+    }
+
+    private Mono<C> runCommand(final C context, final ICommand<? super C> command) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            final Mono<C> step = Mono.defer(() -> command.run(context)).cast(contextClass);
+            return workflowMetrics.timeStep(context.getWorkflowName(), command,
+                    workflowStepPolicies.apply(command, context, step))
+                    .doOnNext(ctx -> publishEvent(ctx, ctx.getStatus(), command.getClass().getSimpleName(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        });
+    }
+
+    private void publishEvent(final C context, final WorkflowStatus status, final String step, final Long durationInMs) {
+        workflowEventBroadcaster.publish(WorkflowEvent.builder()
+                .claimTicket(context.getClaimTicket())
+                .workflowName(context.getWorkflowName())
+                .status(status)
+                .step(step)
+                .durationInMs(durationInMs)
+                .timestamp(Instant.now())
+                .build());
+    }
+
+    private Mono<C> saveState(final C context) {
+        return workflowStateRepository.save(context.getClaimTicket(), context).thenReturn(context);
     }
 
-    private C setStatus(final C context, final WorkflowStatus status) {
+    private Mono<C> setStatus(final C context, final WorkflowStatus status) {
         context.setStatus(status);
-        workflowStateRepository.save(context.getClaimTicket(), context);
-        return context;
+        workflowMetrics.statusChanged(context.getClaimTicket(), status);
+        return saveState(context).doOnNext(ctx -> publishEvent(ctx, status, null, null));
     }
 
 }
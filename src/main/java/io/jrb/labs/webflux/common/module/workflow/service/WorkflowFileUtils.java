@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.hash.Hashing;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes workflow files so that a reader never sees a partly written file: the content goes to a temporary file in
+ * the same directory, which then atomically replaces the target. The {@link WorkflowModuleConfig.Fsync fsync policy}
+ * decides what is forced to disk first.
+ * <p>
+ * Workflow files live under the {@value #STATE_DIRECTORY} directory, spread over {@value #SHARD_LEVELS} levels of
+ * directories named after a hash of the claim ticket, so that no directory grows past a few hundred entries.
+ */
+@Slf4j
+final class WorkflowFileUtils {
+
+    static final String STATE_DIRECTORY = "workflow-state";
+    static final int SHARD_LEVELS = 2;
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private WorkflowFileUtils() {}
+
+    static Path shardedFile(final Path stateDirectory, final String key, final String suffix) {
+        final String hash = Hashing.murmur3_32().hashString(key, StandardCharsets.UTF_8).toString();
+        Path shard = stateDirectory;
+        for (int level = 0; level < SHARD_LEVELS; level++) {
+            shard = shard.resolve(hash.substring(level * 2, level * 2 + 2));
+        }
+        return shard.resolve(key + suffix);
+    }
+
+    static void writeAtomically(final Path file, final byte[] content, final WorkflowModuleConfig.Fsync fsync)
+            throws IOException {
+        final Path directory = Files.createDirectories(file.getParent());
+        final Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), TEMP_FILE_SUFFIX);
+        try {
+            try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync != WorkflowModuleConfig.Fsync.NONE) {
+                    channel.force(true);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+            if (fsync == WorkflowModuleConfig.Fsync.DIRECTORY) {
+                forceDirectory(directory);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void forceDirectory(final Path directory) {
+        try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            log.debug("Unable to force directory {} to disk - {}", directory, e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Records how long workflows and their steps take, and gauges the workflows in flight by status. Timers publish
+ * percentile histograms, tagged by workflow name, command class and outcome, so step latencies can be compared
+ * across instances.
+ */
+public class WorkflowMetrics {
+
+    private static final Set<WorkflowStatus> TERMINAL_STATUSES =
+            ImmutableSet.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.REMOVED);
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, WorkflowStatus> inFlight = new ConcurrentHashMap<>();
+
+    public WorkflowMetrics(final MeterRegistry meterRegistry) {
+        this.meterRegistry = required(meterRegistry, "meterRegistry");
+        for (final WorkflowStatus status : WorkflowStatus.values()) {
+            if (!TERMINAL_STATUSES.contains(status)) {
+                Gauge.builder("workflow.active", inFlight, m -> m.values().stream().filter(status::equals).count())
+                        .description("Workflows in flight, by status")
+                        .tag("status", status.name())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Tracks the status of a workflow for the in-flight gauges; a terminal status stops tracking it.
+     *
+     * @param claimTicket the claim ticket of the workflow
+     * @param status the new status
+     */
+    public void statusChanged(final String claimTicket, final WorkflowStatus status) {
+        if (TERMINAL_STATUSES.contains(status)) {
+            inFlight.remove(claimTicket);
+        } else {
+            inFlight.put(claimTicket, status);
+        }
+    }
+
+    public <T> Mono<T> timeStep(final String workflowName, final ICommand<?> command, final Mono<T> step) {
+        return time(step, outcome -> Timer.builder("workflow.step")
+                .description("Time taken by a single workflow step")
+                .tag("workflow", String.valueOf(workflowName))
+                .tag("command", command.getClass().getSimpleName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Times a workflow run. The workflow stops being tracked in flight once the run terminates, so a run cancelled
+     * before reaching a terminal status is not gauged forever.
+     *
+     * @param workflowName the name of the workflow
+     * @param claimTicket the claim ticket of the workflow
+     * @param workflow the workflow run
+     * @param <T> the type of result
+     * @return the timed workflow run
+     */
+    public <T> Mono<T> timeWorkflow(final String workflowName, final String claimTicket, final Mono<T> workflow) {
+        return time(workflow.doFinally(signal -> inFlight.remove(claimTicket)), outcome -> Timer.builder("workflow.run")
+                .description("Time taken by a workflow once admitted, from start to finish")
+                .tag("workflow", String.valueOf(workflowName))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private <T> Mono<T> time(final Mono<T> mono, final Function<String, Timer> timer) {
+        return Mono.defer(() -> {
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doFinally(signal -> sample.stop(timer.apply(outcome(signal))));
+        });
+    }
+
+    private static String outcome(final SignalType signal) {
+        switch (signal) {
+            case ON_ERROR:
+                return "error";
+            case CANCEL:
+                return "cancelled";
+            default:
+                return "success";
+        }
+    }
+
+}
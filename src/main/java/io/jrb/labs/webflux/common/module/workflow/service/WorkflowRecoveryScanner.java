@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Recovers workflows left initialized or running by an instance that is no longer running them. Once the application
+ * is ready to serve, and then at every heartbeat, it renews the lease this instance holds on the workflows it runs,
+ * and claims those whose lease has gone stale; the store makes sure that a stale workflow is claimed by one instance
+ * only. Each claimed workflow is either resumed detached, from the steps it had not completed, or marked as failed so
+ * that clients polling its claim ticket stop waiting. A workflow that cannot be resumed is marked as failed.
+ */
+@Slf4j
+public class WorkflowRecoveryScanner implements AutoCloseable {
+
+    private static final Set<WorkflowStatus> INTERRUPTED_STATUSES =
+            ImmutableSet.of(WorkflowStatus.INITIALIZED, WorkflowStatus.RUNNING);
+
+    private final IWorkflowStateRepository workflowStateRepository;
+    private final IWorkflowService workflowService;
+    private final WorkflowModuleConfig.Recovery recovery;
+    private final WorkflowModuleConfig.Lease lease;
+    private final Clock clock;
+    private final Disposable.Swap scanning = Disposables.swap();
+
+    public WorkflowRecoveryScanner(
+            final IWorkflowStateRepository workflowStateRepository,
+            final IWorkflowService workflowService,
+            final WorkflowModuleConfig.Recovery recovery,
+            final WorkflowModuleConfig.Lease lease,
+            final Clock clock
+    ) {
+        this.workflowStateRepository = required(workflowStateRepository, "workflowStateRepository");
+        this.workflowService = required(workflowService, "workflowService");
+        this.recovery = required(recovery, "recovery");
+        this.lease = required(lease, "lease");
+        this.clock = required(clock, "clock");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scanning.update(Flux.interval(Duration.ZERO, Duration.ofSeconds(lease.heartbeatIntervalInSec()))
+                .onBackpressureDrop()
+                .concatMap(tick -> recover()
+                        .doOnNext(count -> {
+                            if (count > 0) {
+                                log.info("Recovered {} interrupted workflows ({})", count, recovery);
+                            }
+                        })
+                        .onErrorResume(e -> {
+                            log.error("Unable to recover interrupted workflows!", e);
+                            return Mono.empty();
+                        }))
+                .subscribe());
+    }
+
+    /**
+     * Renews the leases held by this instance, then recovers every interrupted workflow it could claim, one at a time.
+     *
+     * @return the number of workflows recovered
+     */
+    public Mono<Long> recover() {
+        final Mono<Void> heartbeat = workflowStateRepository.renewLeases(INTERRUPTED_STATUSES);
+        if (recovery == WorkflowModuleConfig.Recovery.NONE) {
+            return heartbeat.thenReturn(0L);
+        }
+        return heartbeat.thenMany(Flux.defer(() -> workflowStateRepository.claimStale(
+                        INTERRUPTED_STATUSES, clock.instant().minusSeconds(lease.ttlInSec()))))
+                .concatMap(key -> workflowStateRepository.find(key, IWorkflowContext.class))
+                .concatMap(this::recover)
+                .count();
+    }
+
+    private Mono<IWorkflowContext> recover(final IWorkflowContext context) {
+        if (recovery == WorkflowModuleConfig.Recovery.RESUME) {
+            log.info("Resuming interrupted workflow - claimTicket = {}, completedSteps = {}",
+                    context.getClaimTicket(), context.getCompletedSteps());
+            return workflowService.submitWorkflow(context)
+                    .thenReturn(context)
+                    .onErrorResume(e -> {
+                        log.warn("Unable to resume interrupted workflow - claimTicket = {}, cause = {}",
+                                context.getClaimTicket(), e.getMessage());
+                        return fail(context);
+                    });
+        }
+        return fail(context);
+    }
+
+    private Mono<IWorkflowContext> fail(final IWorkflowContext context) {
+        log.info("Failing interrupted workflow - claimTicket = {}", context.getClaimTicket());
+        context.setStatus(WorkflowStatus.FAILED);
+        return workflowStateRepository.save(context.getClaimTicket(), context).thenReturn(context);
+    }
+
+    @Override
+    public void close() {
+        scanning.dispose();
+    }
+
+}
@@ -25,12 +25,17 @@ package io.jrb.labs.webflux.common.module.workflow.service;
 
 import com.google.common.base.CaseFormat;
 import io.jrb.labs.webflux.common.module.workflow.model.ClaimTicket;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
 import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static io.jrb.labs.webflux.common.validation.Validation.required;
@@ -41,46 +46,79 @@ public class WorkflowService implements IWorkflowService {
     private final Map<String, IWorkflowFactory<? extends IWorkflowContext>> workflowFactories;
     private final Map<String, String> workflowAliases;
     private final IWorkflowStateRepository workflowStateRepository;
+    private final Scheduler workflowScheduler;
+    private final IWorkflowEventBroadcaster workflowEventBroadcaster;
+    private final WorkflowAdmissionController admissionController;
+    private final WorkflowMetrics workflowMetrics;
 
     public WorkflowService(
             final Map<String, IWorkflowFactory<? extends IWorkflowContext>> workflowFactories,
             final Map<String, String> workflowAliases,
-            final IWorkflowStateRepository workflowStateRepository
+            final IWorkflowStateRepository workflowStateRepository,
+            final Scheduler workflowScheduler,
+            final IWorkflowEventBroadcaster workflowEventBroadcaster,
+            final WorkflowAdmissionController admissionController,
+            final WorkflowMetrics workflowMetrics
     ) {
         this.workflowFactories = required(workflowFactories, "workflowFactories")
                 .keySet().stream()
                 .collect(Collectors.toMap(this::calculateWorkflowName, workflowFactories::get));
         this.workflowAliases = required(workflowAliases, "workflowAliases");
         this.workflowStateRepository = required(workflowStateRepository, "workflowStateRepository");
+        this.workflowScheduler = required(workflowScheduler, "workflowScheduler");
+        this.workflowEventBroadcaster = required(workflowEventBroadcaster, "workflowEventBroadcaster");
+        this.admissionController = required(admissionController, "admissionController");
+        this.workflowMetrics = required(workflowMetrics, "workflowMetrics");
         log.info("Registered workflows = {}", this.workflowFactories.keySet());
     }
 
     @Override
     public Mono<ClaimTicket> deleteWorkflowContext(final String workflowName, final String claimTicketNumber) {
-        return Mono.just(claimTicketNumber)
-                .map(ctn -> workflowStateRepository
-                        .find(ctn, IWorkflowContext.class)
-                        .orElseThrow(() -> new UnknownClaimTicketException(ctn)))
-                .map(ctx -> {
+        return findWorkflowContext(claimTicketNumber)
+                .flatMap(ctx -> {
                     log.info("Attempting to delete {}", ctx);
                     if (ctx.getWorkflowName().equals(workflowName)) {
-                        workflowStateRepository.delete(claimTicketNumber);
-                        return ClaimTicket.builder()
-                                .claimTicket(ctx.getClaimTicket())
-                                .status(ctx.getStatus())
-                                .build();
+                        return workflowStateRepository.delete(claimTicketNumber)
+                                .doOnSuccess(v -> {
+                                    workflowMetrics.statusChanged(claimTicketNumber, WorkflowStatus.REMOVED);
+                                    workflowEventBroadcaster.publish(toEvent(ctx, WorkflowStatus.REMOVED));
+                                })
+                                .thenReturn(ClaimTicket.builder()
+                                        .claimTicket(ctx.getClaimTicket())
+                                        .status(ctx.getStatus())
+                                        .build());
                     } else {
-                        throw new MismatchedClaimTicketException(claimTicketNumber, workflowName);
+                        return Mono.error(new MismatchedClaimTicketException(claimTicketNumber, workflowName));
+                    }
+                });
+    }
+
+    @Override
+    public Flux<WorkflowEvent> getWorkflowEvents(final String claimTicketNumber) {
+        return workflowEventBroadcaster.events(claimTicketNumber)
+                .orElseGet(() -> findWorkflowContext(claimTicketNumber)
+                        .map(ctx -> toEvent(ctx, ctx.getStatus()))
+                        .flux());
+    }
+
+    @Override
+    public Mono<IWorkflowContext> getWorkflowResult(final String workflowName, final String claimTicketNumber) {
+        return workflowStateRepository.find(claimTicketNumber, IWorkflowContext.class)
+                .switchIfEmpty(Mono.error(() -> new UnknownClaimTicketException(claimTicketNumber)))
+                .flatMap(ctx -> {
+                    if (!ctx.getWorkflowName().equals(workflowName)) {
+                        return Mono.error(new MismatchedClaimTicketException(claimTicketNumber, workflowName));
+                    } else if (ctx.getStatus() != WorkflowStatus.COMPLETED) {
+                        return Mono.error(new IncompleteWorkflowException(claimTicketNumber, ctx.getStatus()));
+                    } else {
+                        return Mono.just(ctx);
                     }
                 });
     }
 
     @Override
     public Mono<ClaimTicket> getWorkflowStatus(final String claimTicketNumber) {
-        return Mono.just(claimTicketNumber)
-                .map(ctn -> workflowStateRepository
-                        .find(ctn, IWorkflowContext.class)
-                        .orElseThrow(() -> new UnknownClaimTicketException(ctn)))
+        return findWorkflowContext(claimTicketNumber)
                 .map(ctx -> ClaimTicket.builder()
                         .claimTicket(ctx.getClaimTicket())
                         .status(ctx.getStatus())
@@ -92,7 +130,12 @@ public class WorkflowService implements IWorkflowService {
         final IWorkflowFactory<IWorkflowContext> workflowFactory = findWorkflowFactory(initialContext);
         try {
 
-            return workflowFactory.createWorkflow(initialContext).cast(contextClass);
+            final String workflowName = findWorkflowName(initialContext);
+            return admissionController.admit(workflowName, () -> workflowMetrics.timeWorkflow(
+                    workflowName,
+                    initialContext.getClaimTicket(),
+                    workflowFactory.createWorkflow(initialContext)
+            )).cast(contextClass);
 
         } catch(final Exception e) {
             initialContext.setStatus(WorkflowStatus.FAILED);
@@ -104,6 +147,79 @@ public class WorkflowService implements IWorkflowService {
         }
     }
 
+    @Override
+    public <C extends IWorkflowContext> Mono<ClaimTicket> submitWorkflow(final C initialContext) {
+        final IWorkflowFactory<IWorkflowContext> workflowFactory = findWorkflowFactory(initialContext);
+        final String claimTicketNumber = initialContext.getClaimTicket();
+        return Mono.defer(() -> {
+            final String workflowName = findWorkflowName(initialContext);
+            final WorkflowAdmissionController.Ticket ticket = admissionController.enter(workflowName);
+            final AtomicBoolean handedOff = new AtomicBoolean();
+            initialContext.setDetached(true).setStatus(WorkflowStatus.INITIALIZED);
+            return workflowStateRepository.save(claimTicketNumber, initialContext)
+                    .doOnSuccess(v -> {
+                        workflowMetrics.statusChanged(claimTicketNumber, WorkflowStatus.INITIALIZED);
+                        workflowEventBroadcaster.publish(toEvent(initialContext, WorkflowStatus.INITIALIZED));
+                    })
+                    .doOnSuccess(v -> {
+                        handedOff.set(true);
+                        runDetached(workflowFactory, workflowName, initialContext, ticket);
+                    })
+                    .doFinally(s -> {
+                        if (!handedOff.get()) {
+                            ticket.exit();
+                        }
+                    });
+        }).thenReturn(ClaimTicket.builder()
+                .claimTicket(claimTicketNumber)
+                .status(WorkflowStatus.INITIALIZED)
+                .build());
+    }
+
+    private void runDetached(
+            final IWorkflowFactory<IWorkflowContext> workflowFactory,
+            final String workflowName,
+            final IWorkflowContext context,
+            final WorkflowAdmissionController.Ticket ticket
+    ) {
+        final Mono<IWorkflowContext> workflow = Mono.defer(() -> workflowMetrics.timeWorkflow(
+                workflowName,
+                context.getClaimTicket(),
+                workflowFactory.createWorkflow(context)
+        ))
+                .doOnNext(ctx -> log.info("Completed detached workflow - claimTicket = {}", ctx.getClaimTicket()))
+                .onErrorResume(e -> {
+                    // the workflow factory has already saved the workflow as failed
+                    log.error("Detached workflow failed - claimTicket = " + context.getClaimTicket(), e);
+                    return Mono.empty();
+                });
+        ticket.granted()
+                .publishOn(workflowScheduler)
+                .then(workflow)
+                .onErrorResume(e -> {
+                    log.error("Detached workflow could not start - claimTicket = " + context.getClaimTicket(), e);
+                    context.setStatus(WorkflowStatus.FAILED);
+                    workflowMetrics.statusChanged(context.getClaimTicket(), WorkflowStatus.FAILED);
+                    return workflowStateRepository.save(context.getClaimTicket(), context).thenReturn(context);
+                })
+                .doFinally(s -> ticket.exit())
+                .subscribe();
+    }
+
+    private WorkflowEvent toEvent(final IWorkflowContext context, final WorkflowStatus status) {
+        return WorkflowEvent.builder()
+                .claimTicket(context.getClaimTicket())
+                .workflowName(context.getWorkflowName())
+                .status(status)
+                .timestamp(Instant.now())
+                .build();
+    }
+
+    private Mono<IWorkflowContext> findWorkflowContext(final String claimTicketNumber) {
+        return workflowStateRepository.findMetadata(claimTicketNumber, IWorkflowContext.class)
+                .switchIfEmpty(Mono.error(() -> new UnknownClaimTicketException(claimTicketNumber)));
+    }
+
     private String calculateWorkflowName(final String key) {
         final String base = key.replaceFirst("WorkflowFactory", "");
         return CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_HYPHEN, base);
@@ -23,63 +23,170 @@
  */
 package io.jrb.labs.webflux.common.module.workflow.service;
 
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Optional;
+import java.time.Instant;
+import java.util.Set;
+import java.util.stream.Stream;
 
+/**
+ * Stores workflow contexts as files on the local disk. The file I/O is blocking, so it runs on a scheduler meant for
+ * blocking work rather than on the calling thread.
+ * <p>
+ * Files are spread over two levels of directories named after a hash of the claim ticket, so that no directory grows
+ * past a few hundred entries. Each save writes a temporary file which then atomically replaces the state file, so a
+ * reader never sees a partly written state; the {@link WorkflowModuleConfig.Fsync fsync policy} decides what is forced
+ * to disk first. States saved in the base directory itself, before sharding, are still read and deleted there.
+ */
 @Slf4j
 public class WorkflowStateDiskStateRepository implements IWorkflowStateRepository {
 
+    private static final String STATE_FILE_SUFFIX = "_state.raw";
+
     private final Path baseDirectory;
+    private final Path stateDirectory;
+    private final IWorkflowContextCodec codec;
+    private final WorkflowModuleConfig.Fsync fsync;
+    private final Scheduler ioScheduler;
+
+    public WorkflowStateDiskStateRepository(
+            final String baseDirectory,
+            final IWorkflowContextCodec codec,
+            final WorkflowModuleConfig.Fsync fsync
+    ) {
+        this(baseDirectory, codec, fsync, Schedulers.boundedElastic());
+    }
 
-    public WorkflowStateDiskStateRepository(final String baseDirectory) {
+    public WorkflowStateDiskStateRepository(
+            final String baseDirectory,
+            final IWorkflowContextCodec codec,
+            final WorkflowModuleConfig.Fsync fsync,
+            final Scheduler ioScheduler
+    ) {
         this.baseDirectory = Paths.get(baseDirectory);
+        this.stateDirectory = this.baseDirectory.resolve(WorkflowFileUtils.STATE_DIRECTORY);
+        this.codec = codec;
+        this.fsync = fsync;
+        this.ioScheduler = ioScheduler;
     }
 
     @Override
-    public void delete(final String key) {
-        final File stateFile = getStateFile(key);
-        try {
-            stateFile.delete();
-        } catch(final Exception e) {
-            log.error("Unable to delete workflow state (" + key + ")!", e);
-        }
+    public Mono<Long> count() {
+        return stateFiles().count().subscribeOn(ioScheduler);
     }
 
     @Override
-    public <C extends IWorkflowContext> Optional<C> find(final String key, final Class<C> contextClass) {
-        final File stateFile = getStateFile(key);
-        try (final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(stateFile))) {
-            final C context = contextClass.cast(ois.readObject());
-            return Optional.ofNullable(context);
-        } catch (Exception e) {
-            return Optional.empty();
-        }
+    public Mono<Void> delete(final String key) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                Files.deleteIfExists(getStateFile(key));
+                Files.deleteIfExists(getLegacyStateFile(key));
+            } catch(final Exception e) {
+                log.error("Unable to delete workflow state (" + key + ")!", e);
+            }
+        }).subscribeOn(ioScheduler);
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> find(final String key, final Class<C> contextClass) {
+        return Mono.fromCallable(() -> {
+            final Path stateFile = Files.exists(getStateFile(key)) ? getStateFile(key) : getLegacyStateFile(key);
+            return read(stateFile, contextClass);
+        }).subscribeOn(ioScheduler);
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesByStatus(final Set<WorkflowStatus> statuses) {
+        return summarize(stateFiles(), statuses);
+    }
+
+    /**
+     * Skips state files modified at or after the given instant before reading them, so that a sweep only reads the
+     * contexts old enough to have expired.
+     */
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return summarize(stateFiles().filter(path -> lastModified(path).isBefore(updatedBefore)), statuses);
     }
 
     @Override
-    public void save(final String key, final IWorkflowContext context) {
-        final File stateFile = getStateFile(key);
-        try (final ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(stateFile))) {
-            oos.writeObject(context);
-        } catch(final Exception e) {
-            log.error("Unable to save workflow state (" + key + ")!", e);
-            throw new RuntimeException(e.getMessage(), e);
+    public Mono<Void> save(final String key, final IWorkflowContext context) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                WorkflowFileUtils.writeAtomically(getStateFile(key), codec.encode(context), fsync);
+                Files.deleteIfExists(getLegacyStateFile(key));
+            } catch(final Exception e) {
+                log.error("Unable to save workflow state (" + key + ")!", e);
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }).subscribeOn(ioScheduler);
+    }
+
+    private Flux<WorkflowStateSummary> summarize(final Flux<Path> stateFiles, final Set<WorkflowStatus> statuses) {
+        return stateFiles
+                .concatMap(path -> Mono.justOrEmpty(read(path, IWorkflowContext.class))
+                        .filter(context -> statuses.contains(context.getStatus()))
+                        .map(context -> WorkflowStateSummary.builder()
+                                .claimTicket(toKey(path))
+                                .workflowName(context.getWorkflowName())
+                                .status(context.getStatus())
+                                .updatedOn(lastModified(path))
+                                .build()))
+                .subscribeOn(ioScheduler);
+    }
+
+    private Flux<Path> stateFiles() {
+        return list(stateDirectory, WorkflowFileUtils.SHARD_LEVELS + 1)
+                .concatWith(list(baseDirectory, 1).filter(path -> !Files.exists(getStateFile(toKey(path)))));
+    }
+
+    private Flux<Path> list(final Path directory, final int depth) {
+        return Flux.defer(() -> Files.isDirectory(directory)
+                ? Flux.using(() -> Files.walk(directory, depth), Flux::fromStream, Stream::close)
+                : Flux.empty())
+                .filter(path -> path.getFileName().toString().endsWith(STATE_FILE_SUFFIX));
+    }
+
+    private <C extends IWorkflowContext> C read(final Path stateFile, final Class<C> contextClass) {
+        try {
+            return codec.decode(Files.readAllBytes(stateFile), contextClass);
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final Exception e) {
+            log.warn("Unable to read workflow state ({}) - {}", stateFile, e.getMessage());
+            return null;
         }
     }
 
-    private File getStateFile(final String key) {
-        final Path stateFilePath = baseDirectory.resolve(key + "_state.raw");
-        final File stateFile = new File(stateFilePath.toUri());
-        stateFile.deleteOnExit();
-        return stateFile;
+    private static Instant lastModified(final Path stateFile) {
+        return Instant.ofEpochMilli(stateFile.toFile().lastModified());
+    }
+
+    private Path getStateFile(final String key) {
+        return WorkflowFileUtils.shardedFile(stateDirectory, key, STATE_FILE_SUFFIX);
+    }
+
+    private Path getLegacyStateFile(final String key) {
+        return baseDirectory.resolve(key + STATE_FILE_SUFFIX);
+    }
+
+    private static String toKey(final Path stateFile) {
+        final String fileName = stateFile.getFileName().toString();
+        return fileName.substring(0, fileName.length() - STATE_FILE_SUFFIX.length());
     }
 
 }
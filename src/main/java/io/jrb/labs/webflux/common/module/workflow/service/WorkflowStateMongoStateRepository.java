@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateDocument;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+
+import static io.jrb.labs.webflux.common.validation.Validation.notBlank;
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Stores workflow contexts in MongoDB through the reactive driver, so that any instance behind a load balancer can
+ * serve a claim ticket. Each save makes the saving instance the owner of the context and renews its lease; a context
+ * whose lease has gone stale is claimed with a conditional update on the lease it was found with, so that only one
+ * instance recovers it.
+ */
+@Slf4j
+public class WorkflowStateMongoStateRepository implements IWorkflowStateRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final IWorkflowContextCodec codec;
+    private final String instanceId;
+
+    public WorkflowStateMongoStateRepository(
+            final ReactiveMongoTemplate mongoTemplate,
+            final String collectionName,
+            final IWorkflowContextCodec codec,
+            final String instanceId
+    ) {
+        this.mongoTemplate = required(mongoTemplate, "mongoTemplate");
+        this.collectionName = notBlank(collectionName, "collectionName");
+        this.codec = required(codec, "codec");
+        this.instanceId = notBlank(instanceId, "instanceId");
+    }
+
+    @Override
+    public Flux<String> claimStale(final Set<WorkflowStatus> statuses, final Instant staleBefore) {
+        final Query query = Query.query(Criteria.where("status").in(statuses).orOperator(
+                Criteria.where("heartbeatOn").lt(staleBefore),
+                Criteria.where("heartbeatOn").is(null)
+        ));
+        query.fields().include("_id").include("heartbeatOn");
+        return mongoTemplate.find(query, WorkflowStateDocument.class, collectionName)
+                .concatMap(document -> claim(document, statuses));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return mongoTemplate.count(new Query(), collectionName);
+    }
+
+    @Override
+    public Mono<Void> delete(final String key) {
+        return mongoTemplate.remove(byId(key), collectionName)
+                .doOnError(e -> log.error("Unable to delete workflow state (" + key + ")!", e))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> find(final String key, final Class<C> contextClass) {
+        return mongoTemplate.findById(key, WorkflowStateDocument.class, collectionName)
+                .map(document -> codec.decode(document.getState(), contextClass))
+                .doOnError(e -> log.error("Unable to read workflow state (" + key + ")!", e));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(final Collection<String> keys) {
+        return mongoTemplate.remove(Query.query(Criteria.where("_id").in(keys)), collectionName)
+                .doOnError(e -> log.error("Unable to delete workflow states (" + keys.size() + ")!", e))
+                .then();
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesByStatus(final Set<WorkflowStatus> statuses) {
+        return findSummaries(Query.query(Criteria.where("status").in(statuses)));
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return findSummaries(Query.query(Criteria.where("status").in(statuses).and("updatedOn").lt(updatedBefore)));
+    }
+
+    @Override
+    public Mono<Void> renewLeases(final Set<WorkflowStatus> statuses) {
+        return mongoTemplate.updateMulti(
+                Query.query(Criteria.where("owner").is(instanceId).and("status").in(statuses)),
+                Update.update("heartbeatOn", Instant.now()),
+                collectionName
+        ).then();
+    }
+
+    @Override
+    public Mono<Void> save(final String key, final IWorkflowContext context) {
+        return Mono.fromCallable(() -> WorkflowStateDocument.builder()
+                        .id(key)
+                        .workflowName(context.getWorkflowName())
+                        .status(context.getStatus())
+                        .updatedOn(Instant.now())
+                        .owner(instanceId)
+                        .heartbeatOn(Instant.now())
+                        .state(codec.encode(context))
+                        .build())
+                .flatMap(document -> mongoTemplate.save(document, collectionName))
+                .doOnError(e -> log.error("Unable to save workflow state (" + key + ")!", e))
+                .onErrorMap(e -> new RuntimeException(e.getMessage(), e))
+                .then();
+    }
+
+    private Flux<WorkflowStateSummary> findSummaries(final Query query) {
+        query.fields().include("_id").include("workflowName").include("status").include("updatedOn");
+        return mongoTemplate.find(query, WorkflowStateDocument.class, collectionName)
+                .map(document -> WorkflowStateSummary.builder()
+                        .claimTicket(document.getId())
+                        .workflowName(document.getWorkflowName())
+                        .status(document.getStatus())
+                        .updatedOn(document.getUpdatedOn())
+                        .build());
+    }
+
+    private Mono<String> claim(final WorkflowStateDocument document, final Set<WorkflowStatus> statuses) {
+        final Query unchanged = Query.query(Criteria.where("_id").is(document.getId())
+                .and("status").in(statuses)
+                .and("heartbeatOn").is(document.getHeartbeatOn()));
+        final Update claimed = new Update().set("owner", instanceId).set("heartbeatOn", Instant.now());
+        return mongoTemplate.updateFirst(unchanged, claimed, collectionName)
+                .filter(result -> result.getModifiedCount() == 1)
+                .map(result -> document.getId());
+    }
+
+    private Query byId(final String key) {
+        return Query.query(Criteria.where("_id").is(key));
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Expires the state of finished workflows in the background. A completed or failed workflow past its retention is
+ * replaced by a {@code REMOVED} tombstone, and its payload then deleted; the tombstone is deleted once it has expired
+ * in turn. Each sweep only asks the store for finished workflows saved before the shortest retention, handles them in
+ * batches, tombstones being deleted in bulk, and then gauges how many workflow contexts are stored.
+ */
+@Slf4j
+public class WorkflowStateSweeper implements AutoCloseable {
+
+    private static final Set<WorkflowStatus> EXPIRING_STATUSES =
+            ImmutableSet.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.REMOVED);
+
+    private final IWorkflowStateRepository workflowStateRepository;
+    private final Map<String, WorkflowModuleConfig.Retention> retentions;
+    private final WorkflowModuleConfig.Retention defaultRetention;
+    private final long shortestTtlInSec;
+    private final int batchSize;
+    private final Clock clock;
+    private final AtomicLong storeSize = new AtomicLong();
+    private final Timer sweepTimer;
+    private final Counter tombstoned;
+    private final Counter deleted;
+    private final Disposable sweeping;
+
+    public WorkflowStateSweeper(
+            final IWorkflowStateRepository workflowStateRepository,
+            final Map<String, WorkflowModuleConfig.Retention> retentions,
+            final WorkflowModuleConfig.Retention defaultRetention,
+            final WorkflowModuleConfig.Sweeper sweeper,
+            final MeterRegistry meterRegistry,
+            final Clock clock
+    ) {
+        this.workflowStateRepository = required(workflowStateRepository, "workflowStateRepository");
+        this.retentions = required(retentions, "retentions");
+        this.defaultRetention = required(defaultRetention, "defaultRetention");
+        this.shortestTtlInSec = Stream.concat(Stream.of(defaultRetention), retentions.values().stream())
+                .mapToLong(retention -> Math.min(retention.ttlInSec(), retention.tombstoneTtlInSec()))
+                .min()
+                .orElse(0L);
+        this.batchSize = required(sweeper, "sweeper").batchSize();
+        this.clock = required(clock, "clock");
+        Gauge.builder("workflow.state.size", storeSize, AtomicLong::get)
+                .description("Workflow contexts stored as of the last sweep")
+                .strongReference(true)
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("workflow.sweep")
+                .description("Time taken to sweep expired workflow state")
+                .register(meterRegistry);
+        this.tombstoned = counter(meterRegistry, "tombstoned");
+        this.deleted = counter(meterRegistry, "deleted");
+        this.sweeping = sweeper.enabled()
+                ? Flux.interval(Duration.ofSeconds(sweeper.intervalInSec()))
+                        .onBackpressureDrop()
+                        .concatMap(tick -> sweep().onErrorResume(e -> {
+                            log.error("Unable to sweep workflow state!", e);
+                            return Mono.empty();
+                        }))
+                        .subscribe()
+                : Disposables.disposed();
+    }
+
+    /**
+     * Sweeps the store once: tombstones finished workflows past their retention and deletes expired tombstones.
+     *
+     * @return a Mono that completes once the sweep has finished
+     */
+    public Mono<Void> sweep() {
+        return Mono.defer(() -> {
+            final Timer.Sample sample = Timer.start();
+            final Instant now = clock.instant();
+            return workflowStateRepository
+                    .findSummariesUpdatedBefore(EXPIRING_STATUSES, now.minusSeconds(shortestTtlInSec))
+                    .filter(summary -> isExpired(summary, now))
+                    .buffer(batchSize)
+                    .concatMap(this::expire)
+                    .then(workflowStateRepository.count())
+                    .doOnNext(storeSize::set)
+                    .doFinally(s -> sample.stop(sweepTimer))
+                    .then();
+        });
+    }
+
+    private Mono<Void> expire(final List<WorkflowStateSummary> batch) {
+        final List<String> expiredTombstones = batch.stream()
+                .filter(summary -> summary.getStatus() == WorkflowStatus.REMOVED)
+                .map(WorkflowStateSummary::getClaimTicket)
+                .collect(Collectors.toList());
+        final Mono<Void> deleteTombstones = expiredTombstones.isEmpty()
+                ? Mono.empty()
+                : workflowStateRepository.deleteAll(expiredTombstones)
+                        .doOnSuccess(v -> deleted.increment(expiredTombstones.size()));
+        return deleteTombstones
+                .thenMany(Flux.fromIterable(batch)
+                        .filter(summary -> summary.getStatus() != WorkflowStatus.REMOVED)
+                        .concatMap(summary -> tombstone(summary).doOnSuccess(v -> tombstoned.increment())))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Unable to expire a batch of workflow state, will retry at next sweep - {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> tombstone(final WorkflowStateSummary summary) {
+        final String key = summary.getClaimTicket();
+        return workflowStateRepository.findMetadata(key, IWorkflowContext.class)
+                .flatMap(context -> {
+                    final IWorkflowContext tombstone = (context instanceof IPayloadWorkflowContext)
+                            ? ((IPayloadWorkflowContext) context).withoutPayload(null)
+                            : context;
+                    tombstone.setStatus(WorkflowStatus.REMOVED);
+                    return workflowStateRepository.save(key, tombstone)
+                            .then(workflowStateRepository.deletePayload(key));
+                });
+    }
+
+    private boolean isExpired(final WorkflowStateSummary summary, final Instant now) {
+        if (!EXPIRING_STATUSES.contains(summary.getStatus()) || summary.getUpdatedOn() == null) {
+            return false;
+        }
+        final WorkflowModuleConfig.Retention retention =
+                Optional.ofNullable(retentions.get(summary.getWorkflowName())).orElse(defaultRetention);
+        final long ttlInSec = (summary.getStatus() == WorkflowStatus.REMOVED)
+                ? retention.tombstoneTtlInSec()
+                : retention.ttlInSec();
+        return summary.getUpdatedOn().plusSeconds(ttlInSec).isBefore(now);
+    }
+
+    private static Counter counter(final MeterRegistry meterRegistry, final String action) {
+        return Counter.builder("workflow.sweep.expired")
+                .description("Workflow contexts expired by the sweeper")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        sweeping.dispose();
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Applies the configured {@link WorkflowModuleConfig.StepPolicy} to each workflow step, selected by
+ * {@link ICommand#stepName()}. Only failures known to be transient, such as an unreachable data store, an I/O error
+ * or a timeout, are retried; anything else is assumed to fail again and is reported at once.
+ */
+@Slf4j
+public class WorkflowStepPolicies {
+
+    private static final Set<Class<? extends Throwable>> RETRYABLE_ERRORS = ImmutableSet.of(
+            DataAccessResourceFailureException.class,
+            TransientDataAccessException.class,
+            IOException.class,
+            TimeoutException.class
+    );
+
+    private final Map<String, WorkflowModuleConfig.StepPolicy> stepPolicies;
+    private final WorkflowModuleConfig.StepPolicy defaultStepPolicy;
+
+    public WorkflowStepPolicies(
+            final Map<String, WorkflowModuleConfig.StepPolicy> stepPolicies,
+            final WorkflowModuleConfig.StepPolicy defaultStepPolicy
+    ) {
+        this.stepPolicies = required(stepPolicies, "stepPolicies");
+        this.defaultStepPolicy = required(defaultStepPolicy, "defaultStepPolicy");
+    }
+
+    /**
+     * Bounds a step by the policy of its command: failed attempts are retried after a jittered backoff, and the
+     * step as a whole fails with a {@link WorkflowStepTimeoutException} once its timeout has passed.
+     *
+     * @param command the command run by the step
+     * @param context the workflow context
+     * @param step the step, subscribed again on each retry
+     * @param <T> the type of result
+     * @return the bounded step
+     */
+    public <T> Mono<T> apply(final ICommand<?> command, final IWorkflowContext context, final Mono<T> step) {
+        final String stepName = command.stepName();
+        final WorkflowModuleConfig.StepPolicy policy = find(stepName);
+        return step
+                .retryWhen(errors -> errors.zipWith(Flux.range(1, Integer.MAX_VALUE)).concatMap(failure -> {
+                    final Throwable e = failure.getT1();
+                    final int attempt = failure.getT2();
+                    if (attempt > policy.maxRetries() || !isRetryable(e)) {
+                        return Mono.error(e);
+                    }
+                    final Duration backoff = backoff(policy, attempt);
+                    log.warn("Retrying workflow step {} in {}ms (attempt {}) - claimTicket = {}, cause = {}",
+                            stepName, backoff.toMillis(), attempt, context.getClaimTicket(), e.getMessage());
+                    return Mono.delay(backoff);
+                }))
+                .timeout(Duration.ofMillis(policy.timeoutInMs()))
+                .onErrorMap(TimeoutException.class, e ->
+                        new WorkflowStepTimeoutException(stepName, policy.timeoutInMs(), e, context));
+    }
+
+    public WorkflowModuleConfig.StepPolicy find(final String stepName) {
+        return Optional.ofNullable(stepPolicies.get(stepName)).orElse(defaultStepPolicy);
+    }
+
+    private static Duration backoff(final WorkflowModuleConfig.StepPolicy policy, final int attempt) {
+        final long exponential = policy.retryBackoffInMs() << Math.min(attempt - 1, 30);
+        final long capped = Math.min(Math.max(exponential, 0), policy.maxRetryBackoffInMs());
+        final double jitter = 1 + policy.jitterFactor() * ThreadLocalRandom.current().nextDouble(-1, 1);
+        return Duration.ofMillis(Math.max(0, Math.round(capped * jitter)));
+    }
+
+    private static boolean isRetryable(final Throwable e) {
+        return Throwables.getCausalChain(e).stream()
+                .anyMatch(cause -> RETRYABLE_ERRORS.stream().anyMatch(type -> type.isInstance(cause)));
+    }
+
+}
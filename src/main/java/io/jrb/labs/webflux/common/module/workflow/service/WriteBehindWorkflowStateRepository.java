@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Decorates a workflow state store with write-behind persistence. Saves of an in-flight workflow are held in memory
+ * and coalesced per claim ticket, so only the latest context is written when the pending saves are flushed on a
+ * fixed interval. A context reaching a terminal status is written through immediately, so a completed or failed
+ * state is durable before the caller proceeds. Reads see pending saves.
+ * <p>
+ * A pending save holds the context as encoded by the configured codec when it was saved, so later changes by the
+ * running workflow never leak into a flush, and each read decodes a copy of its own. The payload of a context is not
+ * encoded but held by reference, as it is replaced rather than changed in place. Writes to the underlying store are
+ * serialized per claim ticket, so a write-through or delete waits for an in-flight flush of the same ticket and is
+ * never overtaken by it.
+ */
+@Slf4j
+public class WriteBehindWorkflowStateRepository implements IWorkflowStateRepository, AutoCloseable {
+
+    private static final Set<WorkflowStatus> TERMINAL_STATUSES =
+            ImmutableSet.of(WorkflowStatus.COMPLETED, WorkflowStatus.FAILED, WorkflowStatus.REMOVED);
+    private static final int FLUSH_CONCURRENCY = 4;
+
+    private final IWorkflowStateRepository delegate;
+    private final IWorkflowContextCodec codec;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<String, Mono<Void>> lastWrite = new ConcurrentHashMap<>();
+    private final Disposable flusher;
+
+    public WriteBehindWorkflowStateRepository(
+            final IWorkflowStateRepository delegate,
+            final IWorkflowContextCodec codec,
+            final Duration flushInterval
+    ) {
+        this.delegate = required(delegate, "delegate");
+        this.codec = required(codec, "codec");
+        this.flusher = Flux.interval(required(flushInterval, "flushInterval"))
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    /**
+     * Claims only stale contexts of the underlying store that are not pending a save, since those are as recent as can
+     * be.
+     */
+    @Override
+    public Flux<String> claimStale(final Set<WorkflowStatus> statuses, final Instant staleBefore) {
+        return delegate.claimStale(statuses, staleBefore).filter(key -> !pending.containsKey(key));
+    }
+
+    /**
+     * Counts the contexts of the underlying store; a workflow not yet flushed there is not counted.
+     */
+    @Override
+    public Mono<Long> count() {
+        return delegate.count();
+    }
+
+    @Override
+    public Mono<Void> delete(final String key) {
+        return Mono.defer(() -> {
+            pending.remove(key);
+            return serialized(key, () -> delegate.delete(key));
+        });
+    }
+
+    @Override
+    public Mono<Void> deletePayload(final String key) {
+        return serialized(key, () -> delegate.deletePayload(key));
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> find(final String key, final Class<C> contextClass) {
+        return findPending(key, contextClass, () -> delegate.find(key, contextClass));
+    }
+
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesByStatus(final Set<WorkflowStatus> statuses) {
+        return Flux.defer(() -> {
+            final Map<String, Pending> snapshot = ImmutableMap.copyOf(pending);
+            final Instant now = Instant.now();
+            final Flux<WorkflowStateSummary> pendingSummaries = Flux.fromIterable(snapshot.entrySet())
+                    .filter(entry -> statuses.contains(entry.getValue().status))
+                    .map(entry -> WorkflowStateSummary.builder()
+                            .claimTicket(entry.getKey())
+                            .workflowName(entry.getValue().workflowName)
+                            .status(entry.getValue().status)
+                            .updatedOn(now)
+                            .build());
+            return pendingSummaries.concatWith(delegate.findSummariesByStatus(statuses)
+                    .filter(summary -> !snapshot.containsKey(summary.getClaimTicket())));
+        });
+    }
+
+    /**
+     * Pending saves are as recent as can be, so only the contexts of the underlying store not pending a save are
+     * summarized.
+     */
+    @Override
+    public Flux<WorkflowStateSummary> findSummariesUpdatedBefore(
+            final Set<WorkflowStatus> statuses,
+            final Instant updatedBefore
+    ) {
+        return delegate.findSummariesUpdatedBefore(statuses, updatedBefore)
+                .filter(summary -> !pending.containsKey(summary.getClaimTicket()));
+    }
+
+    @Override
+    public <C extends IWorkflowContext> Mono<C> findMetadata(final String key, final Class<C> contextClass) {
+        return findPending(key, contextClass, () -> delegate.findMetadata(key, contextClass));
+    }
+
+    @Override
+    public Mono<Void> renewLeases(final Set<WorkflowStatus> statuses) {
+        return delegate.renewLeases(statuses);
+    }
+
+    @Override
+    public Mono<Void> save(final String key, final IWorkflowContext context) {
+        return Mono.defer(() -> {
+            if (TERMINAL_STATUSES.contains(context.getStatus())) {
+                pending.remove(key);
+                return serialized(key, () -> delegate.save(key, context));
+            }
+            pending.put(key, new Pending(context));
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Writes every pending save to the underlying store. A save that fails is kept pending for the next flush,
+     * unless a newer save, write-through or delete has replaced it meanwhile.
+     *
+     * @return a Mono that completes once the pending saves have been attempted
+     */
+    public Mono<Void> flush() {
+        return Flux.fromIterable(ImmutableSet.copyOf(pending.keySet()))
+                .flatMap(key -> serialized(key, () -> {
+                    final Pending entry = pending.get(key);
+                    if (entry == null) {
+                        return Mono.empty();
+                    }
+                    return delegate.save(key, entry.restore(IWorkflowContext.class))
+                            .doOnSuccess(v -> pending.remove(key, entry));
+                }).onErrorResume(e -> {
+                    log.warn("Unable to flush workflow state ({}), will retry - {}", key, e.getMessage());
+                    return Mono.empty();
+                }), FLUSH_CONCURRENCY)
+                .then();
+    }
+
+    @Override
+    public void close() {
+        flusher.dispose();
+        flush().block(Duration.ofSeconds(30));
+    }
+
+    /**
+     * Runs a write to the underlying store once every earlier write of the same claim ticket has finished,
+     * whatever its outcome.
+     */
+    private Mono<Void> serialized(final String key, final Supplier<Mono<Void>> write) {
+        return Mono.defer(() -> {
+            final MonoProcessor<Void> done = MonoProcessor.create();
+            final Mono<Void> previous = lastWrite.put(key, done);
+            return Optional.ofNullable(previous).orElse(Mono.empty())
+                    .then(Mono.defer(write))
+                    .doFinally(signal -> {
+                        lastWrite.remove(key, done);
+                        done.onComplete();
+                    });
+        });
+    }
+
+    private <C extends IWorkflowContext> Mono<C> findPending(
+            final String key,
+            final Class<C> contextClass,
+            final Supplier<Mono<C>> fallback
+    ) {
+        return Mono.defer(() -> {
+            final Pending entry = pending.get(key);
+            return (entry != null && contextClass.isAssignableFrom(entry.contextClass))
+                    ? Mono.fromCallable(() -> entry.restore(contextClass))
+                    : fallback.get();
+        });
+    }
+
+    /**
+     * A pending save. Each save gets its own instance, so a flush only clears the entry it actually wrote.
+     */
+    private final class Pending {
+
+        private final Class<? extends IWorkflowContext> contextClass;
+        private final String workflowName;
+        private final WorkflowStatus status;
+        private final byte[] metadata;
+        private final byte[] content;
+
+        private Pending(final IWorkflowContext context) {
+            this.contextClass = context.getClass();
+            this.workflowName = context.getWorkflowName();
+            this.status = context.getStatus();
+            if (context instanceof IPayloadWorkflowContext) {
+                final IPayloadWorkflowContext payloadContext = (IPayloadWorkflowContext) context;
+                this.content = payloadContext.getContent();
+                this.metadata = codec.encode(payloadContext.withoutPayload(payloadContext.getPayloadId()));
+            } else {
+                this.content = null;
+                this.metadata = codec.encode(context);
+            }
+        }
+
+        private <C extends IWorkflowContext> C restore(final Class<C> expectedClass) {
+            final C context = codec.decode(metadata, expectedClass);
+            if (content != null) {
+                ((IPayloadWorkflowContext) context).setContent(content);
+            }
+            return context;
+        }
+
+    }
+
+}
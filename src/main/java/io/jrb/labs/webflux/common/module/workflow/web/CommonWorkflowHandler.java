@@ -23,12 +23,16 @@
  */
 package io.jrb.labs.webflux.common.module.workflow.web;
 
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
+import io.jrb.labs.webflux.common.module.workflow.service.IFinalContentWorkflowContext;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowService;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowException;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import static io.jrb.labs.webflux.common.module.workflow.web.WorkflowHandlerUtils.WORKFLOW_EXCEPTION_MAPPER;
@@ -53,6 +57,36 @@ public class CommonWorkflowHandler {
                 );
     }
 
+    public Mono<ServerResponse> getWorkflowEvents(final ServerRequest request) {
+        final Flux<ServerSentEvent<WorkflowEvent>> events = workflowService.getWorkflowEvents(claimTicketNumber(request))
+                .onErrorMap(WorkflowException.class, WORKFLOW_EXCEPTION_MAPPER)
+                .index()
+                .map(indexed -> ServerSentEvent.builder(indexed.getT2())
+                        .id(String.valueOf(indexed.getT1()))
+                        .event(indexed.getT2().getStep() != null ? "step" : "status")
+                        .build());
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    public Mono<ServerResponse> getWorkflowResult(final ServerRequest request) {
+        return workflowService.getWorkflowResult(workflowName(request), claimTicketNumber(request))
+                .onErrorMap(WorkflowException.class, WORKFLOW_EXCEPTION_MAPPER)
+                .flatMap(ctx -> {
+                    if (ctx instanceof IFinalContentWorkflowContext) {
+                        final IFinalContentWorkflowContext<?> fctx = (IFinalContentWorkflowContext<?>) ctx;
+                        return ServerResponse.ok()
+                                .contentType(fctx.getFinalContentType())
+                                .body(BodyInserters.fromValue(fctx.getFinalContent()));
+                    } else {
+                        return ServerResponse.ok()
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(ctx.getStatus());
+                    }
+                });
+    }
+
     public Mono<ServerResponse> getWorkflowStatus(final ServerRequest request) {
         return workflowService.getWorkflowStatus(claimTicketNumber(request))
                 .onErrorMap(WorkflowException.class, WORKFLOW_EXCEPTION_MAPPER)
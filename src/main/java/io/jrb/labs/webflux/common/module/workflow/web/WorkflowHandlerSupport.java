@@ -24,24 +24,34 @@
 package io.jrb.labs.webflux.common.module.workflow.web;
 
 import io.jrb.labs.webflux.common.module.workflow.service.IFinalContentWorkflowContext;
+import io.jrb.labs.webflux.common.module.workflow.service.IStreamingContentWorkflowContext;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowService;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowException;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowRejectedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 
+import static io.jrb.labs.webflux.common.module.workflow.web.WorkflowHandlerUtils.REJECTED_EXECUTION_MAPPER;
 import static io.jrb.labs.webflux.common.module.workflow.web.WorkflowHandlerUtils.WORKFLOW_EXCEPTION_MAPPER;
+import static io.jrb.labs.webflux.common.webflux.FluxContentUtils.fromOutputStream;
 
 @Slf4j
 public class WorkflowHandlerSupport<C extends IWorkflowContext> {
 
+    private static final String ASYNC_PARAM = "async";
+
     private final IWorkflowService workflowService;
+    private final String claimTicketNumberHeader;
     private final Class<C> workflowContextClass;
     private final Function<ServerRequest, C> initialContextBuilder;
     private final Function<C, Mono<ServerResponse>> responseBuilder;
@@ -49,14 +59,23 @@ public class WorkflowHandlerSupport<C extends IWorkflowContext> {
     public WorkflowHandlerSupport(
             final IWorkflowService workflowService,
             final Class<C> workflowContextClass,
-            final Function<ServerRequest, C> initialContextBuilder
+            final Function<ServerRequest, C> initialContextBuilder,
+            final Scheduler streamContentScheduler,
+            final String claimTicketNumberHeader
     ) {
         this.workflowService = workflowService;
+        this.claimTicketNumberHeader = claimTicketNumberHeader;
         this.workflowContextClass = workflowContextClass;
         this.initialContextBuilder = initialContextBuilder;
         this.responseBuilder = ctx -> {
             final ServerResponse.BodyBuilder bodyBuilder = ServerResponse.ok();
-            if (ctx instanceof IFinalContentWorkflowContext) {
+            if (ctx instanceof IStreamingContentWorkflowContext
+                    && ((IStreamingContentWorkflowContext) ctx).hasStreamingContent()) {
+                final IStreamingContentWorkflowContext sctx = (IStreamingContentWorkflowContext) ctx;
+                return bodyBuilder
+                        .contentType(sctx.getFinalContentType())
+                        .body(fromOutputStream(sctx::writeFinalContent, streamContentScheduler));
+            } else if (ctx instanceof IFinalContentWorkflowContext) {
                 final IFinalContentWorkflowContext<?> fctx = (IFinalContentWorkflowContext<?>) ctx;
                 return bodyBuilder
                         .contentType(fctx.getFinalContentType())
@@ -73,19 +92,52 @@ public class WorkflowHandlerSupport<C extends IWorkflowContext> {
             final IWorkflowService workflowService,
             final Class<C> workflowContextClass,
             final Function<ServerRequest, C> initialContextBuilder,
-            final Function<C, Mono<ServerResponse>> responseBuilder
+            final Function<C, Mono<ServerResponse>> responseBuilder,
+            final String claimTicketNumberHeader
     ) {
         this.workflowService = workflowService;
+        this.claimTicketNumberHeader = claimTicketNumberHeader;
         this.workflowContextClass = workflowContextClass;
         this.initialContextBuilder = initialContextBuilder;
         this.responseBuilder = responseBuilder;
     }
 
+    /**
+     * Runs the workflow for a request. By default the response carries the workflow result; with {@code async=true}
+     * the workflow is submitted to run detached, and the response is a 202 Accepted with the claim ticket, pointing
+     * to the status endpoint to poll.
+     *
+     * @param request the server request
+     * @return the server response
+     */
     public Mono<ServerResponse> runWorkflow(final ServerRequest request) {
         final C initialContext = initialContextBuilder.apply(request);
+        if (isAsync(request)) {
+            return submitWorkflow(initialContext);
+        }
         return workflowService.runWorkflow(initialContext, workflowContextClass)
+                .flatMap(responseBuilder)
+                .onErrorResume(WorkflowRejectedException.class, WorkflowHandlerUtils::rejectedWorkflowResponse)
                 .onErrorMap(WorkflowException.class, WORKFLOW_EXCEPTION_MAPPER)
-                .flatMap(responseBuilder);
+                .onErrorMap(RejectedExecutionException.class, REJECTED_EXECUTION_MAPPER);
+    }
+
+    private Mono<ServerResponse> submitWorkflow(final C initialContext) {
+        return Mono.defer(() -> workflowService.submitWorkflow(initialContext))
+                .onErrorMap(RejectedExecutionException.class, REJECTED_EXECUTION_MAPPER)
+                .flatMap(claimTicket -> ServerResponse
+                        .accepted()
+                        .location(URI.create(String.format("/api/v1/workflow/%s/%s/status",
+                                initialContext.getWorkflowName(), claimTicket.getClaimTicket())))
+                        .header(claimTicketNumberHeader, claimTicket.getClaimTicket())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(claimTicket))
+                .onErrorResume(WorkflowRejectedException.class, WorkflowHandlerUtils::rejectedWorkflowResponse)
+                .onErrorMap(WorkflowException.class, WORKFLOW_EXCEPTION_MAPPER);
+    }
+
+    private boolean isAsync(final ServerRequest request) {
+        return request.queryParam(ASYNC_PARAM).map(Boolean::parseBoolean).orElse(false);
     }
 
 }
@@ -24,15 +24,22 @@
 package io.jrb.labs.webflux.common.module.workflow.web;
 
 import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.module.workflow.service.IncompleteWorkflowException;
 import io.jrb.labs.webflux.common.module.workflow.service.MismatchedClaimTicketException;
 import io.jrb.labs.webflux.common.module.workflow.service.UnknownClaimTicketException;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowException;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowRejectedException;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowUserException;
 import io.jrb.labs.webflux.common.web.ErrorDTO;
 import io.jrb.labs.webflux.common.web.ResponseException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Function;
 
 public class WorkflowHandlerUtils {
@@ -44,7 +51,13 @@ public class WorkflowHandlerUtils {
         final ErrorDTO.ErrorDTOBuilder errorBuilder = ErrorDTO.builder()
                 .description(e.getMessage())
                 .eventType("WORKFLOW_ENGINE");
-        if (e instanceof MismatchedClaimTicketException) {
+        HttpStatus status = e instanceof WorkflowUserException ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+        if (e instanceof IncompleteWorkflowException) {
+            metadataBuilder.put("claimTicket", ((IncompleteWorkflowException) e).getClaimTicketNumber());
+            metadataBuilder.put("status", ((IncompleteWorkflowException) e).getStatus().name());
+            errorBuilder.errorCode("WFE-005");
+            status = HttpStatus.CONFLICT;
+        } else if (e instanceof MismatchedClaimTicketException) {
             metadataBuilder.put("claimTicket", ((MismatchedClaimTicketException) e).getClaimTicketNumber());
             metadataBuilder.put("workflowName", ((MismatchedClaimTicketException) e).getWorkflowName());
             errorBuilder.errorCode("WFE-003");
@@ -55,12 +68,39 @@ public class WorkflowHandlerUtils {
             errorBuilder.errorCode("WFE-001");
         }
         return new ResponseException(
-                e instanceof WorkflowUserException ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR,
+                status,
                 metadataBuilder.build(),
                 errorBuilder.build()
         );
     };
 
+    public static final Function<RejectedExecutionException, ResponseException> REJECTED_EXECUTION_MAPPER = e ->
+            new ResponseException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    ErrorDTO.builder()
+                            .description("Workflow capacity exhausted, please retry later")
+                            .eventType("WORKFLOW_ENGINE")
+                            .errorCode("WFE-004")
+                            .build()
+            );
+
+    /**
+     * Builds the response to a workflow rejected by admission control: a 503 telling the client when to retry.
+     *
+     * @param e the rejection
+     * @return the server response
+     */
+    public static Mono<ServerResponse> rejectedWorkflowResponse(final WorkflowRejectedException e) {
+        return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterInSec()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ErrorDTO.builder()
+                        .description(e.getMessage())
+                        .eventType("WORKFLOW_ENGINE")
+                        .errorCode("WFE-006")
+                        .build());
+    }
+
     public static String claimTicketNumber(final ServerRequest r) {
         return r.pathVariable("claimTicketNumber");
     }
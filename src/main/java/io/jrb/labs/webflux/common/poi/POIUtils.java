@@ -40,6 +40,7 @@ import java.awt.Dimension;
 import java.awt.geom.Rectangle2D;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Optional;
 
 @Slf4j
@@ -80,6 +81,21 @@ public final class POIUtils {
         return xss;
     }
 
+    /**
+     * Creates a new slideshow from a cached master template, optionally creating leader slides based upon a list of
+     * layouts defined within the template.
+     *
+     * @param template the cached master template
+     * @param leaderSlideLayouts an optional list of leader slide layouts
+     * @return the new slideshow
+     * @throws IllegalArgumentException if unable to read the master template
+     */
+    public static XMLSlideShow createSlideshow(final SlideShowTemplate template, final String... leaderSlideLayouts) {
+        final XMLSlideShow xss = template.open();
+        createSlides(xss, template, leaderSlideLayouts);
+        return xss;
+    }
+
     /**
      * Creates a single PowerPoint slide with a black background.
      *
@@ -88,7 +104,18 @@ public final class POIUtils {
      * @return the new slide
      */
     public static XSLFSlide createSlide(final XMLSlideShow xss, final String layout) {
-        final XSLFSlide slide = xss.createSlide(xss.findLayout(layout));
+        return createSlide(xss, xss.findLayout(layout));
+    }
+
+    /**
+     * Creates a single PowerPoint slide with a black background.
+     *
+     * @param xss the slideshow to contains the new slide
+     * @param layout the resolved slide layout
+     * @return the new slide
+     */
+    public static XSLFSlide createSlide(final XMLSlideShow xss, final XSLFSlideLayout layout) {
+        final XSLFSlide slide = xss.createSlide(layout);
         final XSLFBackground background = slide.getBackground();
         background.setFillColor(Color.BLACK);
         return slide;
@@ -110,6 +137,27 @@ public final class POIUtils {
         return xss;
     }
 
+    /**
+     * Creates one or more slides using the given layouts, as resolved by a cached master template.
+     *
+     * @param xss the slideshow to contain the new slides
+     * @param template the master template the slideshow was opened from
+     * @param layouts the list of layouts
+     * @return the active slideshow
+     */
+    public static XMLSlideShow createSlides(
+            final XMLSlideShow xss,
+            final SlideShowTemplate template,
+            final String... layouts
+    ) {
+        if (layouts != null) {
+            for (final String layout : layouts) {
+                createSlide(xss, template.findLayout(xss, layout));
+            }
+        }
+        return xss;
+    }
+
     /**
      * Creates a rectangular text paragraph on the given slide.
      *
@@ -160,4 +208,18 @@ public final class POIUtils {
 
     }
 
+    /**
+     * Writes a slideshow directly to an output stream, closing the slideshow afterwards.
+     *
+     * @param xss the slideshow
+     * @param os the output stream
+     */
+    public static void writeSlideShow(final XMLSlideShow xss, final OutputStream os) {
+        try (final XMLSlideShow slideShow = xss) {
+            slideShow.write(os);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
 }
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.poi;
+
+import com.google.common.base.Suppliers;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlideLayout;
+import org.apache.poi.xslf.usermodel.XSLFSlideMaster;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Provides a slideshow master template that is read and parsed only once. The raw package is kept in memory so that
+ * each new slideshow is re-opened from a byte array rather than from the underlying resource. Layouts belong to the
+ * slideshow they were opened with, so they are looked up by name on that slideshow, where each slide master already
+ * indexes its own layouts.
+ */
+@Slf4j
+public class SlideShowTemplate {
+
+    private final Resource masterTemplate;
+    private final Supplier<byte[]> content;
+
+    public SlideShowTemplate(final Resource masterTemplate) {
+        this.masterTemplate = masterTemplate;
+        this.content = Suppliers.memoize(this::loadTemplate);
+    }
+
+    /**
+     * Finds a slide layout by name within a slideshow opened from this template.
+     *
+     * @param xss the slideshow
+     * @param layoutName the layout name
+     * @return the slide layout, or null if the layout is not defined
+     */
+    public XSLFSlideLayout findLayout(final XMLSlideShow xss, final String layoutName) {
+        return xss.findLayout(layoutName);
+    }
+
+    /**
+     * Opens a new slideshow from the cached master template.
+     *
+     * @return the new slideshow
+     * @throws IllegalArgumentException if unable to read the master template
+     */
+    public XMLSlideShow open() {
+        final byte[] templateContent = content.get();
+        if (templateContent == null) {
+            return new XMLSlideShow();
+        }
+        try {
+            return new XMLSlideShow(new ByteArrayInputStream(templateContent));
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to open master template - " + masterTemplate.getFilename(), e);
+        }
+    }
+
+    private byte[] loadTemplate() {
+        if (masterTemplate == null) {
+            return null;
+        }
+        try (final InputStream is = masterTemplate.getInputStream()) {
+            final byte[] templateContent = IOUtils.toByteArray(is);
+            try (final XMLSlideShow xss = new XMLSlideShow(new ByteArrayInputStream(templateContent))) {
+                log.info("Loaded master template {} - layouts = {}", masterTemplate.getFilename(), layoutNames(xss));
+                return templateContent;
+            }
+        } catch (final IOException e) {
+            throw new IllegalArgumentException("Unable to load master template - " + masterTemplate.getFilename(), e);
+        }
+    }
+
+    private List<String> layoutNames(final XMLSlideShow xss) {
+        return xss.getSlideMasters().stream()
+                .map(XSLFSlideMaster::getSlideLayouts)
+                .flatMap(Arrays::stream)
+                .map(XSLFSlideLayout::getName)
+                .collect(Collectors.toList());
+    }
+
+}
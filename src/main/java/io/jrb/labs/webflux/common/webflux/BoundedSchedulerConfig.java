@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.webflux;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.util.Optional;
+
+/**
+ * Sizes a bounded scheduler: a fixed pool of worker threads fed by a queue of limited capacity. Work submitted
+ * while every thread is busy and the queue is full is rejected rather than buffered.
+ */
+@Accessors(fluent = true) @Getter
+@ConstructorBinding
+public class BoundedSchedulerConfig {
+
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_QUEUE_CAPACITY = 100;
+    private static final long DEFAULT_KEEP_ALIVE_SEC = 60;
+
+    private final int poolSize;
+    private final int queueCapacity;
+    private final long keepAliveSec;
+
+    public BoundedSchedulerConfig(final Integer poolSize, final Integer queueCapacity, final Long keepAliveSec) {
+        this.poolSize = Optional.ofNullable(poolSize).orElse(DEFAULT_POOL_SIZE);
+        this.queueCapacity = Optional.ofNullable(queueCapacity).orElse(DEFAULT_QUEUE_CAPACITY);
+        this.keepAliveSec = Optional.ofNullable(keepAliveSec).orElse(DEFAULT_KEEP_ALIVE_SEC);
+    }
+
+}
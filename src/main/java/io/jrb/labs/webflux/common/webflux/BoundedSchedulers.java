@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.webflux;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static io.jrb.labs.webflux.common.validation.Validation.greaterThan;
+import static io.jrb.labs.webflux.common.validation.Validation.notBlank;
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Creates bounded, instrumented schedulers for blocking work.
+ */
+@Slf4j
+public final class BoundedSchedulers {
+
+    private BoundedSchedulers() {}
+
+    /**
+     * Creates a scheduler backed by a fixed-size thread pool and a bounded queue. Once the pool is busy and the queue
+     * is full, further tasks are rejected with a {@link java.util.concurrent.RejectedExecutionException}, which
+     * Reactor surfaces as an error signal. The pool size, active count, queue depth and rejections are published
+     * as metrics tagged with the scheduler name.
+     *
+     * @param name the name of the scheduler, used for thread names and metric tags
+     * @param config the sizing of the scheduler
+     * @param meterRegistry the registry that receives the scheduler metrics
+     * @return the scheduler
+     */
+    public static Scheduler create(final String name, final BoundedSchedulerConfig config, final MeterRegistry meterRegistry) {
+        notBlank(name, "name");
+        required(config, "config");
+        required(meterRegistry, "meterRegistry");
+        greaterThan(config.poolSize(), 0, "poolSize");
+        greaterThan(config.queueCapacity(), 0, "queueCapacity");
+
+        final Counter rejected = Counter.builder("scheduler.rejected")
+                .description("Tasks rejected because the scheduler was saturated")
+                .tag("name", name)
+                .register(meterRegistry);
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                config.poolSize(),
+                config.poolSize(),
+                config.keepAliveSec(),
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(config.queueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build(),
+                (task, pool) -> {
+                    rejected.increment();
+                    new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+                }
+        );
+        executor.allowCoreThreadTimeOut(true);
+        new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(meterRegistry);
+
+        log.info("Created bounded scheduler {}, poolSize={}, queueCapacity={}", name, config.poolSize(), config.queueCapacity());
+        return Schedulers.fromExecutorService(executor, name);
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.common.webflux;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.FluxSink;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Bridges a blocking {@link OutputStream} producer to a {@link FluxSink}. Written bytes are collected into buffers of
+ * a fixed chunk size, and each full buffer is only emitted once the downstream has requested it; until then, the
+ * producing thread waits. Once the downstream cancels, any further write fails so that the producer stops.
+ */
+class DataBufferSinkOutputStream extends OutputStream {
+
+    private final FluxSink<DataBuffer> sink;
+    private final DataBufferFactory bufferFactory;
+    private final int chunkSize;
+    private final Object monitor = new Object();
+
+    private DataBuffer current;
+    private long demand;
+    private boolean cancelled;
+    private boolean closed;
+
+    DataBufferSinkOutputStream(final FluxSink<DataBuffer> sink, final DataBufferFactory bufferFactory, final int chunkSize) {
+        this.sink = sink;
+        this.bufferFactory = bufferFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    void request(final long n) {
+        synchronized (monitor) {
+            demand = (Long.MAX_VALUE - demand < n) ? Long.MAX_VALUE : demand + n;
+            monitor.notifyAll();
+        }
+    }
+
+    void cancel() {
+        synchronized (monitor) {
+            cancelled = true;
+            monitor.notifyAll();
+        }
+    }
+
+    boolean isCancelled() {
+        synchronized (monitor) {
+            return cancelled;
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        currentBuffer().write((byte) b);
+        emitIfFull();
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        ensureOpen();
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            final DataBuffer buffer = currentBuffer();
+            final int count = Math.min(remaining, chunkSize - buffer.readableByteCount());
+            buffer.write(b, offset, count);
+            offset += count;
+            remaining -= count;
+            emitIfFull();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (current != null && current.readableByteCount() > 0) {
+                emit();
+            }
+        } finally {
+            release();
+            closed = true;
+        }
+    }
+
+    /**
+     * Releases any buffer that was allocated but not yet emitted.
+     */
+    void release() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+
+    private void awaitDemand() throws IOException {
+        synchronized (monitor) {
+            while (demand == 0 && !cancelled) {
+                try {
+                    monitor.wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for downstream demand");
+                }
+            }
+            if (cancelled) {
+                throw new IOException("Downstream cancelled the content stream");
+            }
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+        }
+    }
+
+    private DataBuffer currentBuffer() {
+        if (current == null) {
+            current = bufferFactory.allocateBuffer(chunkSize);
+        }
+        return current;
+    }
+
+    private void emit() throws IOException {
+        awaitDemand();
+        final DataBuffer buffer = current;
+        current = null;
+        sink.next(buffer);
+    }
+
+    private void emitIfFull() throws IOException {
+        if (current.readableByteCount() >= chunkSize) {
+            emit();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (isCancelled()) {
+            throw new IOException("Downstream cancelled the content stream");
+        }
+    }
+
+}
@@ -25,22 +25,36 @@ package io.jrb.labs.webflux.common.webflux;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DefaultDataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import reactor.core.scheduler.Scheduler;
 
-import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
 
+import static io.jrb.labs.webflux.common.validation.Validation.greaterThan;
+
 /**
  * Provides common static methods and functions for dealing with Flux content.
  */
 @Slf4j
 public final class FluxContentUtils {
 
+    /**
+     * The default size of each streamed buffer, in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private static final DataBufferFactory DEFAULT_BUFFER_FACTORY = new DefaultDataBufferFactory();
+
     private FluxContentUtils() {}
 
     /**
@@ -51,17 +65,96 @@ public final class FluxContentUtils {
      * @return a DataBuffer Flux containing the streamed content
      */
     public static Flux<DataBuffer> streamContent(final Consumer<OutputStream> consumer, final Scheduler scheduler) {
+        return streamContent(consumer, scheduler, DEFAULT_BUFFER_FACTORY, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Facilitates the streaming of content from a custom consumer to a {@link DataBuffer} Flux, allocating buffers
+     * from the given factory.
+     *
+     * @param consumer the callback that writes custom content to a given output stream
+     * @param scheduler the scheduler on which this streaming operation should take place
+     * @param bufferFactory the factory used to allocate the streamed buffers
+     * @return a DataBuffer Flux containing the streamed content
+     */
+    public static Flux<DataBuffer> streamContent(
+            final Consumer<OutputStream> consumer,
+            final Scheduler scheduler,
+            final DataBufferFactory bufferFactory
+    ) {
+        return streamContent(consumer, scheduler, bufferFactory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Facilitates the streaming of content from a custom consumer to a {@link DataBuffer} Flux. The consumer runs on
+     * the given scheduler and its output is emitted as a series of buffers of at most {@code chunkSize} bytes. A
+     * buffer is only emitted once the downstream has requested it, blocking the consumer until then, and a
+     * downstream cancellation fails any further write so that the consumer stops.
+     *
+     * @param consumer the callback that writes custom content to a given output stream
+     * @param scheduler the scheduler on which this streaming operation should take place
+     * @param bufferFactory the factory used to allocate the streamed buffers
+     * @param chunkSize the size of each streamed buffer, in bytes
+     * @return a DataBuffer Flux containing the streamed content
+     */
+    public static Flux<DataBuffer> streamContent(
+            final Consumer<OutputStream> consumer,
+            final Scheduler scheduler,
+            final DataBufferFactory bufferFactory,
+            final int chunkSize
+    ) {
+        greaterThan(chunkSize, 0, "chunkSize");
         return Flux.create((FluxSink<DataBuffer> emitter) -> {
-            final DefaultDataBuffer dataBuffer = new DefaultDataBufferFactory().allocateBuffer();
-            try (final OutputStream dbos = dataBuffer.asOutputStream()) {
-                consumer.accept(dbos);
-                dbos.flush();
-                emitter.next(dataBuffer);
-            } catch(final IOException e) {
-                log.error("Unexpected exception while streaming content!", e);
+            final DataBufferSinkOutputStream os = new DataBufferSinkOutputStream(emitter, bufferFactory, chunkSize);
+            emitter.onRequest(os::request);
+            emitter.onCancel(os::cancel);
+            try {
+                scheduler.schedule(() -> produceContent(consumer, os, emitter));
+            } catch (final RejectedExecutionException e) {
+                log.warn("Unable to schedule content streaming - {}", e.getMessage());
                 emitter.error(e);
             }
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    /**
+     * Provides a body inserter that streams content from a custom consumer straight into the HTTP response, using
+     * the buffer factory of the response itself (pooled Netty buffers when running on Reactor Netty). If the scheduler
+     * is saturated and rejects the work, the response fails with {@code 503 Service Unavailable}.
+     *
+     * @param consumer the callback that writes custom content to a given output stream
+     * @param scheduler the scheduler on which this streaming operation should take place
+     * @return the body inserter
+     */
+    public static BodyInserter<Flux<DataBuffer>, ReactiveHttpOutputMessage> fromOutputStream(
+            final Consumer<OutputStream> consumer,
+            final Scheduler scheduler
+    ) {
+        return (message, context) -> message.writeWith(
+                streamContent(consumer, scheduler, message.bufferFactory())
+                        .onErrorMap(RejectedExecutionException.class, e -> new ResponseStatusException(
+                                HttpStatus.SERVICE_UNAVAILABLE, "Content streaming capacity exhausted", e
+                        ))
+        );
+    }
+
+    private static void produceContent(
+            final Consumer<OutputStream> consumer,
+            final DataBufferSinkOutputStream os,
+            final FluxSink<DataBuffer> emitter
+    ) {
+        try {
+            consumer.accept(os);
+            os.close();
             emitter.complete();
-        }).publishOn(scheduler);
+        } catch (final Exception e) {
+            os.release();
+            if (os.isCancelled()) {
+                log.debug("Content streaming stopped after downstream cancellation");
+            } else {
+                log.error("Unexpected exception while streaming content!", e);
+                emitter.error(e);
+            }
+        }
     }
 }
@@ -28,18 +28,21 @@ import io.jrb.labs.webflux.common.logging.AnnotationDrivenEventListener;
 import io.jrb.labs.webflux.common.module.workflow.EnableWorkflowEngine;
 import io.jrb.labs.webflux.common.web.TraceabilityHeaderNames;
 import io.jrb.labs.webflux.common.web.TraceabilityWebFilter;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulers;
 import io.jrb.labs.webflux.module.greeting.GreetingModuleJavaConfig;
 import io.jrb.labs.webflux.module.pdf.PdfModuleJavaConfig;
 import io.jrb.labs.webflux.module.security.SecurityModuleJavaConfig;
 import io.jrb.labs.webflux.module.song.SongModuleJavaConfig;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.scheduler.Scheduler;
 
 @Configuration
-@EnableConfigurationProperties(TraceabilityHeaderNames.class)
+@EnableConfigurationProperties({ SchedulerConfig.class, TraceabilityHeaderNames.class })
 @Import({
         GreetingModuleJavaConfig.class,
         PdfModuleJavaConfig.class,
@@ -61,6 +64,20 @@ public class ApplicationJavaConfig {
         return builder;
     }
 
+    @Bean(destroyMethod = "dispose")
+    public Scheduler documentRenderingScheduler(final SchedulerConfig config, final MeterRegistry meterRegistry) {
+        return BoundedSchedulers.create("document-rendering", config.documentRendering(), meterRegistry);
+    }
+
+    /**
+     * Runs the writers streaming content to clients, apart from document rendering, so that slow downloads cannot
+     * starve the rendering of new documents.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler contentStreamingScheduler(final SchedulerConfig config, final MeterRegistry meterRegistry) {
+        return BoundedSchedulers.create("content-streaming", config.contentStreaming(), meterRegistry);
+    }
+
     @Bean
     public AnnotationDrivenEventListener eventLogger() {
         return new AnnotationDrivenEventListener();
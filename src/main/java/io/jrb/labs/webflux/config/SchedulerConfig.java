@@ -0,0 +1,52 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.config;
+
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulerConfig;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.util.Optional;
+
+@Accessors(fluent = true) @Getter
+@ConstructorBinding
+@ConfigurationProperties("scheduler")
+public class SchedulerConfig {
+
+    private final BoundedSchedulerConfig documentRendering;
+    private final BoundedSchedulerConfig contentStreaming;
+
+    public SchedulerConfig(
+            final BoundedSchedulerConfig documentRendering,
+            final BoundedSchedulerConfig contentStreaming
+    ) {
+        this.documentRendering = Optional.ofNullable(documentRendering)
+                .orElse(new BoundedSchedulerConfig(null, null, null));
+        this.contentStreaming = Optional.ofNullable(contentStreaming)
+                .orElse(new BoundedSchedulerConfig(null, null, null));
+    }
+
+}
@@ -28,6 +28,7 @@ import io.jrb.labs.webflux.module.pdf.service.IPdfService;
 import io.jrb.labs.webflux.module.pdf.service.PdfService;
 import io.jrb.labs.webflux.module.pdf.web.PdfWebHandler;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -36,7 +37,7 @@ import org.springframework.web.reactive.function.server.RequestPredicates;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
 @Slf4j
 @Configuration
@@ -60,8 +61,11 @@ public class PdfModuleJavaConfig extends ModuleJavaConfigSupport {
     }
 
     @Bean
-    public PdfWebHandler pdfWebHandler(final IPdfService pdfService) {
-        return new PdfWebHandler(pdfService, Schedulers.elastic());
+    public PdfWebHandler pdfWebHandler(
+            final IPdfService pdfService,
+            @Qualifier("contentStreamingScheduler") final Scheduler contentStreamingScheduler
+    ) {
+        return new PdfWebHandler(pdfService, contentStreamingScheduler);
     }
 
     @Bean
@@ -25,14 +25,13 @@ package io.jrb.labs.webflux.module.pdf.web;
 
 import io.jrb.labs.webflux.module.pdf.service.IPdfService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
-import static io.jrb.labs.webflux.common.webflux.FluxContentUtils.streamContent;
+import static io.jrb.labs.webflux.common.webflux.FluxContentUtils.fromOutputStream;
 
 @Slf4j
 public class PdfWebHandler {
@@ -53,7 +52,7 @@ public class PdfWebHandler {
         return ServerResponse
                 .ok()
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(streamContent(os -> pdfService.createDocument(documentId, os), streamContentScheduler), DataBuffer.class);
+                .body(fromOutputStream(os -> pdfService.createDocument(documentId, os), streamContentScheduler));
     }
 
 }
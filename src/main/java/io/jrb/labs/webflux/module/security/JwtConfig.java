@@ -37,10 +37,12 @@ public class JwtConfig {
 
     private final String secret;
     private final Long expirationInSec;
+    private final Long verifiedTokenCacheSize;
 
-    public JwtConfig(final String secret, final Long expirationInSec) {
+    public JwtConfig(final String secret, final Long expirationInSec, final Long verifiedTokenCacheSize) {
         this.secret = (secret != null) ? secret : randomAlphabetic(67, 67);
         this.expirationInSec = expirationInSec;
+        this.verifiedTokenCacheSize = (verifiedTokenCacheSize != null) ? verifiedTokenCacheSize : 10_000L;
     }
 
     public byte[] secretBytes() {
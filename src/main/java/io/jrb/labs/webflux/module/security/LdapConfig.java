@@ -25,36 +25,74 @@ package io.jrb.labs.webflux.module.security;
 
 import com.google.common.collect.BiMap;
 import com.google.common.collect.ImmutableBiMap;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulerConfig;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 
 import java.util.Map;
+import java.util.Optional;
 
 @Accessors(fluent = true) @Getter
 @ConstructorBinding
 @ConfigurationProperties("module.security.ldap")
 public class LdapConfig {
 
+    private static final int DEFAULT_MAX_CONCURRENT_LOGINS = 20;
+    private static final long DEFAULT_TIMEOUT_IN_SEC = 5;
+
     private final String applicationBase;
     private final String groupBase;
     private final String permissionsBase;
     private final String userBase;
     private final BiMap<String, String> authorityFilter;
+    private final AuthorityCache authorityCache;
+    private final int maxConcurrentLogins;
+    private final BoundedSchedulerConfig scheduler;
+    private final long timeoutInSec;
 
     public LdapConfig(
             final String applicationBase,
             final String groupBase,
             final String permissionsBase,
             final String userBase,
-            final Map<String, String> authorityFilter
+            final Map<String, String> authorityFilter,
+            final AuthorityCache authorityCache,
+            final Integer maxConcurrentLogins,
+            final BoundedSchedulerConfig scheduler,
+            final Long timeoutInSec
     ) {
         this.applicationBase = applicationBase;
         this.groupBase = groupBase;
         this.permissionsBase = permissionsBase;
         this.userBase = userBase;
         this.authorityFilter = ImmutableBiMap.copyOf(authorityFilter).inverse();
+        this.authorityCache = Optional.ofNullable(authorityCache).orElse(new AuthorityCache(null, null));
+        this.maxConcurrentLogins = Optional.ofNullable(maxConcurrentLogins).orElse(DEFAULT_MAX_CONCURRENT_LOGINS);
+        this.scheduler = Optional.ofNullable(scheduler).orElse(new BoundedSchedulerConfig(null, null, null));
+        this.timeoutInSec = Optional.ofNullable(timeoutInSec).orElse(DEFAULT_TIMEOUT_IN_SEC);
+    }
+
+    /**
+     * Bounds the cache of authorities resolved per user: entries expire {@code ttlInSec} after they are loaded, and
+     * the least recently used entries are evicted beyond {@code maxSize}.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class AuthorityCache {
+
+        private static final long DEFAULT_MAX_SIZE = 10_000;
+        private static final long DEFAULT_TTL_IN_SEC = 300;
+
+        private final long maxSize;
+        private final long ttlInSec;
+
+        public AuthorityCache(final Long maxSize, final Long ttlInSec) {
+            this.maxSize = Optional.ofNullable(maxSize).orElse(DEFAULT_MAX_SIZE);
+            this.ttlInSec = Optional.ofNullable(ttlInSec).orElse(DEFAULT_TTL_IN_SEC);
+        }
+
     }
 
 }
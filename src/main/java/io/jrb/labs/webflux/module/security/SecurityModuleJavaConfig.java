@@ -24,14 +24,18 @@
 package io.jrb.labs.webflux.module.security;
 
 import io.jrb.labs.webflux.common.module.ModuleJavaConfigSupport;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulers;
 import io.jrb.labs.webflux.module.security.service.IAuthenticationService;
 import io.jrb.labs.webflux.module.security.service.LdapAuthenticationService;
 import io.jrb.labs.webflux.module.security.web.AuthenticationController;
 import io.jrb.labs.webflux.module.security.web.AuthenticationManager;
+import io.jrb.labs.webflux.module.security.web.AuthorityCacheEndpoint;
 import io.jrb.labs.webflux.module.security.web.JwtTokenProvider;
 import io.jrb.labs.webflux.module.security.web.PBKDF2Encoder;
 import io.jrb.labs.webflux.module.security.web.SecurityContextRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -46,6 +50,7 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 import org.springframework.web.reactive.config.CorsRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Slf4j
 @Configuration
@@ -78,17 +83,38 @@ public class SecurityModuleJavaConfig extends ModuleJavaConfigSupport implements
     }
 
     @Bean
-    public AuthenticationManager authenticationManager(final JwtTokenProvider jwtTokenProvider) {
-        return new AuthenticationManager(jwtTokenProvider);
+    public AuthenticationManager authenticationManager(
+            final JwtConfig jwtConfig,
+            final JwtTokenProvider jwtTokenProvider,
+            final MeterRegistry meterRegistry
+    ) {
+        return new AuthenticationManager(
+                jwtTokenProvider,
+                jwtConfig.verifiedTokenCacheSize(),
+                jwtConfig.expirationInSec(),
+                meterRegistry
+        );
+    }
+
+    @Bean
+    public AuthorityCacheEndpoint authorityCacheEndpoint(final IAuthenticationService authenticationService) {
+        return new AuthorityCacheEndpoint(authenticationService);
     }
 
     @Bean
     public IAuthenticationService authenticationService(
             final LdapConfig ldapConfig,
             final LdapTemplate ldapTemplate,
-            final PasswordEncoder passwordEncoder
+            final PasswordEncoder passwordEncoder,
+            @Qualifier("ldapScheduler") final Scheduler ldapScheduler,
+            final MeterRegistry meterRegistry
     ) {
-        return new LdapAuthenticationService(ldapConfig, ldapTemplate, passwordEncoder);
+        return new LdapAuthenticationService(ldapConfig, ldapTemplate, passwordEncoder, ldapScheduler, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler ldapScheduler(final LdapConfig ldapConfig, final MeterRegistry meterRegistry) {
+        return BoundedSchedulers.create("ldap", ldapConfig.scheduler(), meterRegistry);
     }
 
     @Bean
@@ -40,4 +40,16 @@ public interface IAuthenticationService {
      */
     Mono<User> authenticate(String username, String password);
 
+    /**
+     * Discards any cached authorities of a user, so that they are resolved again on the next login.
+     *
+     * @param username the user identifier
+     */
+    void invalidateAuthorities(String username);
+
+    /**
+     * Discards the cached authorities of every user.
+     */
+    void invalidateAllAuthorities();
+
 }
@@ -23,9 +23,13 @@
  */
 package io.jrb.labs.webflux.module.security.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import io.jrb.labs.webflux.module.security.LdapConfig;
 import io.jrb.labs.webflux.module.security.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ldap.core.AttributesMapper;
 import org.springframework.ldap.core.DirContextOperations;
@@ -39,16 +43,26 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
 
 import static org.springframework.ldap.query.LdapQueryBuilder.query;
 
 /**
- * Provides a service that authenticates and authorizes users against LDAP.
+ * Provides a service that authenticates and authorizes users against LDAP. The blocking directory calls run on a
+ * dedicated bounded scheduler, never on the calling thread, and each login is subject to a timeout and a limit on the
+ * number of logins in flight. The authorities resolved for a user are cached for a short while, but the password
+ * bind is always performed.
  */
 @Slf4j
 public class LdapAuthenticationService implements IAuthenticationService {
@@ -56,31 +70,90 @@ public class LdapAuthenticationService implements IAuthenticationService {
     private final LdapConfig ldapConfig;
     private final LdapTemplate ldapTemplate;
     private final PasswordEncoder passwordEncoder;
+    private final Scheduler ldapScheduler;
+    private final Semaphore loginPermits;
+    private final Cache<String, List<GrantedAuthority>> authorityCache;
 
     public LdapAuthenticationService(
             final LdapConfig ldapConfig,
             final LdapTemplate ldapTemplate,
-            final PasswordEncoder passwordEncoder
+            final PasswordEncoder passwordEncoder,
+            final Scheduler ldapScheduler,
+            final MeterRegistry meterRegistry
     ) {
         this.ldapConfig = ldapConfig;
         this.ldapTemplate = ldapTemplate;
         this.passwordEncoder = passwordEncoder;
+        this.ldapScheduler = ldapScheduler;
+        this.loginPermits = new Semaphore(ldapConfig.maxConcurrentLogins());
+        this.authorityCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(ldapConfig.authorityCache().ttlInSec(), TimeUnit.SECONDS)
+                .maximumSize(ldapConfig.authorityCache().maxSize())
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, authorityCache, "ldap.authorities");
     }
 
     @Override
     public Mono<User> authenticate(final String username, final String password) {
+        return Mono.using(
+                this::acquireLoginPermit,
+                permits -> lookupUser(username, password).timeout(Duration.ofSeconds(ldapConfig.timeoutInSec())),
+                Semaphore::release
+        ).onErrorMap(TimeoutException.class, e -> new AuthenticationUnavailableException(
+                "LDAP did not respond within " + ldapConfig.timeoutInSec() + "s", e
+        )).onErrorMap(RejectedExecutionException.class, e -> new AuthenticationUnavailableException(
+                "LDAP scheduler is saturated", e
+        ));
+    }
+
+    @Override
+    public void invalidateAuthorities(final String username) {
+        log.info("Invalidating cached authorities, username={}", username);
+        authorityCache.invalidate(username);
+    }
+
+    @Override
+    public void invalidateAllAuthorities() {
+        log.info("Invalidating all cached authorities");
+        authorityCache.invalidateAll();
+    }
+
+    private Semaphore acquireLoginPermit() {
+        if (!loginPermits.tryAcquire()) {
+            throw new AuthenticationUnavailableException("Too many concurrent logins");
+        }
+        return loginPermits;
+    }
+
+    private Mono<User> lookupUser(final String username, final String password) {
+        final Mono<Boolean> bind = onLdapScheduler(() -> bindUser(username, password));
+        return bind.filter(Boolean::booleanValue)
+                .flatMap(bound -> findAuthorities(username))
+                .map(authorities -> {
+                    final User user = new User(username, "", true, authorities);
+                    log.info("user = {}", user);
+                    return user;
+                });
+    }
+
+    private Mono<List<GrantedAuthority>> findAuthorities(final String username) {
+        return Mono.defer(() -> Mono.justOrEmpty(authorityCache.getIfPresent(username)))
+                .switchIfEmpty(onLdapScheduler(() -> getDnForUser(username))
+                        .flatMap(dn -> onLdapScheduler(() -> findGroupDns(dn))
+                                .flatMap(groupDns -> onLdapScheduler(() -> findPermissionDns(dn, groupDns))
+                                        .map(permissionDns -> buildAuthoryList(groupDns, permissionDns))))
+                        .doOnNext(authorities -> authorityCache.put(username, authorities)));
+    }
+
+    private boolean bindUser(final String username, final String password) {
         final AndFilter filter = new AndFilter();
         filter.and(new EqualsFilter("objectclass", "person")).and(new EqualsFilter("uid", username));
-        if (ldapTemplate.authenticate(ldapConfig.userBase(), filter.toString(), passwordEncoder.encode(password))) {
-            final String userDn = getDnForUser(username);
-            final List<String> groupDns = findGroupDns(userDn);
-            final List<String> permissionDns = findPermissionDns(userDn, groupDns);
-            final List<GrantedAuthority> authorities = buildAuthoryList(groupDns, permissionDns);
-            final User user = new User(username, "", true, authorities);
-            log.info("user = {}", user);
-            return Mono.just(user);
-        }
-        return Mono.empty();
+        return ldapTemplate.authenticate(ldapConfig.userBase(), filter.toString(), passwordEncoder.encode(password));
+    }
+
+    private <T> Mono<T> onLdapScheduler(final Callable<T> ldapCall) {
+        return Mono.fromCallable(ldapCall).subscribeOn(ldapScheduler);
     }
 
     private List<GrantedAuthority> buildAuthoryList(final List<String> groupDns, final List<String> permissionDns) {
@@ -130,7 +203,8 @@ public class LdapAuthenticationService implements IAuthenticationService {
                 });
 
         if (result.size() != 1) {
-            throw new RuntimeException("User not found or not unique");
+            log.warn("User not found or not unique, uid={}", uid);
+            return null;
         }
 
         return result.get(0);
@@ -25,6 +25,7 @@ package io.jrb.labs.webflux.module.security.web;
 
 import io.jrb.labs.webflux.module.security.model.AuthRequest;
 import io.jrb.labs.webflux.module.security.model.AuthResponse;
+import io.jrb.labs.webflux.module.security.service.AuthenticationUnavailableException;
 import io.jrb.labs.webflux.module.security.service.IAuthenticationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -32,8 +33,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
+@Slf4j
 @RestController
 public class AuthenticationController {
 
@@ -55,7 +58,11 @@ public class AuthenticationController {
                     AuthResponse.builder()
                                .token(jwtTokenProvider.generateToken(userDetails))
                             .build()
-                )).defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+                )).defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build())
+                .onErrorResume(AuthenticationUnavailableException.class, e -> {
+                    log.warn("Login rejected - {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                });
     }
 
 }
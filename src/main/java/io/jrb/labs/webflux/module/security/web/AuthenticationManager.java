@@ -23,7 +23,12 @@
  */
 package io.jrb.labs.webflux.module.security.web;
 
-import io.jsonwebtoken.Claims;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -31,45 +36,88 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Authenticates requests bearing a JWT. Each token is verified with a single parse, and the resulting authentication
+ * is cached, keyed by a digest of the token, until the token expires. A token without a subject or without a list of
+ * authorities is not valid.
+ */
 @Slf4j
 public class AuthenticationManager implements ReactiveAuthenticationManager {
 
+    private static final String AUTHORITIES = "authorities";
+
     private final JwtTokenProvider jwtTokenProvider;
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
-    public AuthenticationManager(final JwtTokenProvider jwtTokenProvider) {
+    public AuthenticationManager(
+            final JwtTokenProvider jwtTokenProvider,
+            final long verifiedTokenCacheSize,
+            final long expirationInSec,
+            final MeterRegistry meterRegistry
+    ) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfterWrite(expirationInSec, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Mono<Authentication> authenticate(final Authentication authentication) {
         final String authToken = authentication.getCredentials().toString();
-        if (jwtTokenProvider.validateToken(authToken)) {
-            final String username = extractUsernameFromToken(authToken);
-            if (username != null) {
-                final Claims claims = jwtTokenProvider.getAllClaimsFromToken(authToken);
-                final List<String> authorities = claims.get("authorities", List.class);
-                final UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
-                        username,
-                        null,
-                        authorities.stream().map(SimpleGrantedAuthority::new).collect(Collectors.toList())
-                );
-                log.info("token auth = {}", auth);
-                return Mono.just(auth);
+        final String tokenDigest = Hashing.sha256().hashString(authToken, StandardCharsets.UTF_8).toString();
+        final VerifiedToken cached = verifiedTokens.getIfPresent(tokenDigest);
+        if (cached != null) {
+            if (cached.isExpired()) {
+                verifiedTokens.invalidate(tokenDigest);
+                return Mono.empty();
             }
+            return Mono.just(cached.getAuthentication());
         }
-        return Mono.empty();
+        return Mono.justOrEmpty(verifyToken(authToken)
+                .map(verified -> {
+                    verifiedTokens.put(tokenDigest, verified);
+                    return verified.getAuthentication();
+                }));
+    }
+
+    private Optional<VerifiedToken> verifyToken(final String authToken) {
+        return jwtTokenProvider.getValidClaimsFromToken(authToken)
+                .filter(claims -> claims.getSubject() != null && claims.get(AUTHORITIES) instanceof List)
+                .map(claims -> {
+                    final List<?> authorities = (List<?>) claims.get(AUTHORITIES);
+                    final UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
+                            claims.getSubject(),
+                            null,
+                            authorities.stream()
+                                    .map(String::valueOf)
+                                    .map(SimpleGrantedAuthority::new)
+                                    .collect(Collectors.toList())
+                    );
+                    log.info("token auth = {}", auth);
+                    return new VerifiedToken(auth, claims.getExpiration());
+                });
     }
 
-    private String extractUsernameFromToken(final String token) {
-        try {
-            return jwtTokenProvider.getUsernameFromToken(token);
-        } catch(final Exception e) {
-            return null;
+    @Value
+    private static class VerifiedToken {
+
+        private final Authentication authentication;
+        private final Date expiration;
+
+        boolean isExpired() {
+            return expiration != null && expiration.before(new Date());
         }
+
     }
 
 }
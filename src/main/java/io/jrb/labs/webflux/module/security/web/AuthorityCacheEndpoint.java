@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.module.security.web;
+
+import io.jrb.labs.webflux.module.security.service.IAuthenticationService;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+/**
+ * Exposes the invalidation of cached user authorities as an actuator endpoint, for use after a group or permission
+ * change that must take effect before the cache entries expire.
+ */
+@Endpoint(id = "authoritycache")
+public class AuthorityCacheEndpoint {
+
+    private final IAuthenticationService authenticationService;
+
+    public AuthorityCacheEndpoint(final IAuthenticationService authenticationService) {
+        this.authenticationService = authenticationService;
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        authenticationService.invalidateAllAuthorities();
+    }
+
+    @DeleteOperation
+    public void invalidate(@Selector final String username) {
+        authenticationService.invalidateAuthorities(username);
+    }
+
+}
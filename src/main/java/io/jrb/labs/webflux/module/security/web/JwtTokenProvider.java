@@ -40,6 +40,7 @@ import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -71,18 +72,15 @@ public class JwtTokenProvider {
                 .getBody();
     }
 
-    public String getUsernameFromToken(final String token) {
-        return getAllClaimsFromToken(token).getSubject();
-    }
-
-    public Date getExpirationDateFromToken(final String token) {
-        return getAllClaimsFromToken(token).getExpiration();
-    }
-
-    public Boolean validateToken(final String token) {
+    /**
+     * Verifies the signature and expiration of a token with a single parse.
+     *
+     * @param token the compact JWT
+     * @return the claims of the token, or empty if the token is not valid
+     */
+    public Optional<Claims> getValidClaimsFromToken(final String token) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token);
-            return !isTokenExpired(token);
+            return Optional.of(getAllClaimsFromToken(token));
         } catch (final SignatureException ex) {
             log.info("Invalid JWT signature");
         } catch (final MalformedJwtException ex) {
@@ -94,7 +92,7 @@ public class JwtTokenProvider {
         } catch (final IllegalArgumentException ex) {
             log.error("JWT claims string is empty.");
         }
-        return false;
+        return Optional.empty();
     }
 
     private String doGenerateToken(final Map<String, Object> claims, final String username) {
@@ -109,9 +107,4 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    private Boolean isTokenExpired(final String token) {
-        final Date expiration = getExpirationDateFromToken(token);
-        return expiration.before(new Date());
-    }
-
 }
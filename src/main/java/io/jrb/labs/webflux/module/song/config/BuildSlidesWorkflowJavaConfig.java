@@ -23,24 +23,41 @@
  */
 package io.jrb.labs.webflux.module.song.config;
 
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowEventBroadcaster;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowService;
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowMetrics;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStepPolicies;
 import io.jrb.labs.webflux.module.song.service.ISetListService;
 import io.jrb.labs.webflux.module.song.service.ISongService;
 import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowFactory;
 import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowHandler;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.CachingBuildSlideShowCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.IBuildSlideShowCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.SlideShowDeckCache;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.SongSlideFragmentCache;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList.FindSetListCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList.IFindSetListCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList.FindSongsForSetListCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList.IFindSongsForSetListCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow.IOpenSlideShowCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow.OpenSlideShowCommand;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Optional;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
@@ -50,8 +67,16 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 public class BuildSlidesWorkflowJavaConfig {
 
     @Bean
-    public BuildSlidesWorkflowHandler buildSlidesWorkflowHandler(final IWorkflowService workflowService) {
-        return new BuildSlidesWorkflowHandler(workflowService);
+    public BuildSlidesWorkflowHandler buildSlidesWorkflowHandler(
+            final IWorkflowService workflowService,
+            final WorkflowModuleConfig workflowModuleConfig,
+            @Qualifier("contentStreamingScheduler") final Scheduler contentStreamingScheduler
+    ) {
+        return new BuildSlidesWorkflowHandler(
+                workflowService,
+                contentStreamingScheduler,
+                workflowModuleConfig.claimTicketNumberHeader()
+        );
     }
 
     @Bean
@@ -62,19 +87,71 @@ public class BuildSlidesWorkflowJavaConfig {
     @Bean
     public BuildSlidesWorkflowFactory buildSlidesWorkflowFactory(
             final IWorkflowStateRepository workflowStateRepository,
+            final IWorkflowEventBroadcaster workflowEventBroadcaster,
+            final WorkflowMetrics workflowMetrics,
+            final WorkflowStepPolicies workflowStepPolicies,
             final IFindSetListCommand findSetListCommand,
             final IFindSongsForSetListCommand findSongsForSetListCommand,
+            final IOpenSlideShowCommand openSlideShowCommand,
             final IBuildSlideShowCommand buildSlideShowCommand
     ) {
-        return new BuildSlidesWorkflowFactory(workflowStateRepository, findSetListCommand, findSongsForSetListCommand, buildSlideShowCommand);
+        return new BuildSlidesWorkflowFactory(
+                workflowStateRepository,
+                workflowEventBroadcaster,
+                workflowMetrics,
+                workflowStepPolicies,
+                findSetListCommand,
+                findSongsForSetListCommand,
+                openSlideShowCommand,
+                buildSlideShowCommand
+        );
     }
 
     @Bean
     public IBuildSlideShowCommand buildSlideShowCommand(
             final BuildSlideShowConfig config,
-            final ISongService songService
+            final SlideShowTemplate slideShowTemplate,
+            @Qualifier("documentRenderingScheduler") final Scheduler documentRenderingScheduler,
+            final SongSlideFragmentCache songSlideFragmentCache,
+            final ObjectProvider<SlideShowDeckCache> slideShowDeckCache
+    ) {
+        final IBuildSlideShowCommand command = new BuildSlideShowCommand(
+                config,
+                slideShowTemplate,
+                documentRenderingScheduler,
+                songSlideFragmentCache
+        );
+        return Optional.ofNullable(slideShowDeckCache.getIfAvailable())
+                .<IBuildSlideShowCommand>map(deckCache -> new CachingBuildSlideShowCommand(command, deckCache, config))
+                .orElse(command);
+    }
+
+    @Bean
+    public IOpenSlideShowCommand openSlideShowCommand(
+            final BuildSlideShowConfig config,
+            final SlideShowTemplate slideShowTemplate,
+            @Qualifier("documentRenderingScheduler") final Scheduler documentRenderingScheduler
+    ) {
+        return new OpenSlideShowCommand(config, slideShowTemplate, documentRenderingScheduler);
+    }
+
+    @Bean
+    public SongSlideFragmentCache songSlideFragmentCache(
+            final BuildSlideShowConfig config,
+            final MeterRegistry meterRegistry
     ) {
-        return new BuildSlideShowCommand(config, songService);
+        return new SongSlideFragmentCache(config.fragmentCache(), meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "module.song.build-slide-show.deck-cache.enabled")
+    public SlideShowDeckCache slideShowDeckCache(final BuildSlideShowConfig config, final MeterRegistry meterRegistry) {
+        return new SlideShowDeckCache(config.deckCache(), meterRegistry);
+    }
+
+    @Bean
+    public SlideShowTemplate slideShowTemplate(final BuildSlideShowConfig config) {
+        return new SlideShowTemplate(config.masterTemplate());
     }
 
     @Bean
@@ -83,8 +160,11 @@ public class BuildSlidesWorkflowJavaConfig {
     }
 
     @Bean
-    public IFindSongsForSetListCommand findSongsForSetListCommand(final ISongService songService) {
-        return new FindSongsForSetListCommand(songService);
+    public IFindSongsForSetListCommand findSongsForSetListCommand(
+            final BuildSlideShowConfig config,
+            final ISongService songService
+    ) {
+        return new FindSongsForSetListCommand(songService, config.songLookup());
     }
 
 }
@@ -25,10 +25,15 @@ package io.jrb.labs.webflux.module.song.repository;
 
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 public interface ReactiveSongRepository extends ReactiveMongoRepository<SongEntity, String> {
 
     Mono<SongEntity> findFirstByTitle(String title);
 
+    Flux<SongEntity> findByTitleIn(Collection<String> titles);
+
 }
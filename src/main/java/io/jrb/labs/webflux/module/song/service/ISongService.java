@@ -25,10 +25,22 @@ package io.jrb.labs.webflux.module.song.service;
 
 import io.jrb.labs.webflux.common.service.crud.ICrudService;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ISongService extends ICrudService<SongEntity> {
 
     Mono<SongEntity> findByTitle(String title);
 
+    /**
+     * Retrieves the songs for a list of titles using a single query. Songs are emitted in the order of the given
+     * titles (once per occurrence); titles without a matching song are skipped.
+     *
+     * @param titles the song titles
+     * @return a stream publisher of the matching songs, in title order
+     */
+    Flux<SongEntity> findByTitles(List<String> titles);
+
 }
@@ -23,14 +23,22 @@
  */
 package io.jrb.labs.webflux.module.song.service;
 
+import com.google.common.collect.ImmutableSet;
 import io.jrb.labs.webflux.common.service.crud.CrudServiceSupport;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 import io.jrb.labs.webflux.module.song.repository.ReactiveSongRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class SongService extends CrudServiceSupport<SongEntity> implements ISongService {
@@ -47,6 +55,22 @@ public class SongService extends CrudServiceSupport<SongEntity> implements ISong
         return repository.findFirstByTitle(title);
     }
 
+    @Override
+    public Flux<SongEntity> findByTitles(final List<String> titles) {
+        if (titles == null || titles.isEmpty()) {
+            return Flux.empty();
+        }
+        return repository.findByTitleIn(ImmutableSet.copyOf(titles))
+                .collect(
+                        (Supplier<Map<String, SongEntity>>) LinkedHashMap::new,
+                        (map, song) -> map.putIfAbsent(song.getTitle(), song)
+                )
+                .flatMapIterable(songsByTitle -> titles.stream()
+                        .map(songsByTitle::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+    }
+
     @Override
     protected BiFunction<SongEntity, SongEntity, SongEntity> updateTransformer() {
         return (orig, update) ->
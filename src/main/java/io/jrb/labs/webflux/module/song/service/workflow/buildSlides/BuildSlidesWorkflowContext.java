@@ -25,39 +25,64 @@ package io.jrb.labs.webflux.module.song.service.workflow.buildSlides;
 
 import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
 import io.jrb.labs.webflux.common.module.workflow.service.IFinalContentWorkflowContext;
+import io.jrb.labs.webflux.common.module.workflow.service.IPayloadWorkflowContext;
+import io.jrb.labs.webflux.common.module.workflow.service.IStreamingContentWorkflowContext;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
 import io.jrb.labs.webflux.module.song.model.SetListEntity;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.IBuildSlideShowContext;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList.IFindSetListContext;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList.IFindSongsForSetListContext;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow.IOpenSlideShowContext;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.springframework.http.MediaType;
 
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.util.UUID.randomUUID;
 
 @Data
 @Accessors(chain = true)
 @Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
 public class BuildSlidesWorkflowContext implements IWorkflowContext, IFinalContentWorkflowContext<byte[]>,
-        IFindSetListContext, IFindSongsForSetListContext, IBuildSlideShowContext {
+        IPayloadWorkflowContext, IStreamingContentWorkflowContext, IFindSetListContext, IFindSongsForSetListContext, IOpenSlideShowContext,
+        IBuildSlideShowContext {
 
     @Builder.Default
     private String claimTicket = randomUUID().toString();
 
+    private Set<String> completedSteps;
+
     private byte[] content;
 
     private MediaType contentType;
 
+    private transient Consumer<OutputStream> contentWriter;
+
+    private boolean detached;
+
+    private List<String> missingSongs;
+
+    private String payloadId;
+
     private SetListEntity setListEntity;
 
     private String setListName;
 
+    private transient XMLSlideShow slideShow;
+
     private Map<String, SongEntity> songs;
 
     private WorkflowStatus status;
@@ -74,4 +99,19 @@ public class BuildSlidesWorkflowContext implements IWorkflowContext, IFinalConte
         return Optional.ofNullable(contentType).orElse(MediaType.TEXT_PLAIN);
     }
 
+    @Override
+    public BuildSlidesWorkflowContext withoutPayload(final String payloadId) {
+        return toBuilder().content(null).payloadId(payloadId).build();
+    }
+
+    @Override
+    public boolean hasStreamingContent() {
+        return contentWriter != null;
+    }
+
+    @Override
+    public void writeFinalContent(final OutputStream os) {
+        contentWriter.accept(os);
+    }
+
 }
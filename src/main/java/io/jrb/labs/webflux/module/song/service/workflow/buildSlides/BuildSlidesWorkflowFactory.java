@@ -23,11 +23,16 @@
  */
 package io.jrb.labs.webflux.module.song.service.workflow.buildSlides;
 
+import com.google.common.collect.ImmutableList;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowEventBroadcaster;
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowStateRepository;
 import io.jrb.labs.webflux.common.module.workflow.service.WorkflowFactorySupport;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowMetrics;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStepPolicies;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.IBuildSlideShowCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList.IFindSetListCommand;
 import io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList.IFindSongsForSetListCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow.IOpenSlideShowCommand;
 import reactor.core.publisher.Mono;
 
 import static io.jrb.labs.webflux.common.validation.Validation.required;
@@ -36,26 +41,34 @@ public class BuildSlidesWorkflowFactory extends WorkflowFactorySupport<BuildSlid
 
     private final IFindSetListCommand findSetListCommand;
     private final IFindSongsForSetListCommand findSongsForSetListCommand;
+    private final IOpenSlideShowCommand openSlideShowCommand;
     private final IBuildSlideShowCommand buildSlideShowCommand;
 
     public BuildSlidesWorkflowFactory(
             final IWorkflowStateRepository workflowStateRepository,
+            final IWorkflowEventBroadcaster workflowEventBroadcaster,
+            final WorkflowMetrics workflowMetrics,
+            final WorkflowStepPolicies workflowStepPolicies,
             final IFindSetListCommand findSetListCommand,
             final IFindSongsForSetListCommand findSongsForSetListCommand,
+            final IOpenSlideShowCommand openSlideShowCommand,
             final IBuildSlideShowCommand buildSlideShowCommand
     ) {
-        super(BuildSlidesWorkflowContext.class, workflowStateRepository);
+        super(BuildSlidesWorkflowContext.class, workflowStateRepository, workflowEventBroadcaster, workflowMetrics, workflowStepPolicies);
         this.findSetListCommand = required(findSetListCommand, "findSetListCommand");
         this.findSongsForSetListCommand = required(findSongsForSetListCommand, "findSongsForSetListCommand");
+        this.openSlideShowCommand = required(openSlideShowCommand, "openSlideShowCommand");
         this.buildSlideShowCommand = required(buildSlideShowCommand, "buildSlideShowCommand");
     }
 
     @Override
     protected Mono<BuildSlidesWorkflowContext> defineWorkflow(final BuildSlidesWorkflowContext context) {
-        return  Mono.just(context)
-                .flatMap(ctx -> runStep(ctx, findSetListCommand))
-                .flatMap(ctx -> runStep(ctx, findSongsForSetListCommand))
-                .flatMap(ctx -> runStep(ctx, buildSlideShowCommand));
+        return runSteps(context, ImmutableList.of(
+                findSetListCommand,
+                findSongsForSetListCommand,
+                openSlideShowCommand,
+                buildSlideShowCommand
+        ));
     }
 
 }
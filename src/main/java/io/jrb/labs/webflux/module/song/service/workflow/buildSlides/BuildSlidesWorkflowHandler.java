@@ -30,17 +30,24 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @Slf4j
 public class BuildSlidesWorkflowHandler extends WorkflowHandlerSupport<BuildSlidesWorkflowContext> {
 
-    public BuildSlidesWorkflowHandler(final IWorkflowService workflowService) {
+    public BuildSlidesWorkflowHandler(
+            final IWorkflowService workflowService,
+            final Scheduler streamContentScheduler,
+            final String claimTicketNumberHeader
+    ) {
         super(
                 workflowService,
                 BuildSlidesWorkflowContext.class,
                 request -> BuildSlidesWorkflowContext.builder()
                     .setListName(request.pathVariable("setList"))
-                    .build()
+                    .build(),
+                streamContentScheduler,
+                claimTicketNumberHeader
         );
     }
 
@@ -23,82 +23,149 @@
  */
 package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.jrb.labs.webflux.common.poi.POIUtils;
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
-import io.jrb.labs.webflux.module.song.service.ISongService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.apache.poi.xslf.usermodel.XSLFSlide;
 import org.apache.poi.xslf.usermodel.XSLFTextParagraph;
 import org.apache.poi.xslf.usermodel.XSLFTextRun;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTShape;
 import org.springframework.http.MediaType;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.awt.Color;
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static io.jrb.labs.webflux.common.poi.POIUtils.createSlide;
 import static io.jrb.labs.webflux.common.poi.POIUtils.createSlides;
 import static io.jrb.labs.webflux.common.poi.POIUtils.createTextRectangle;
+import static io.jrb.labs.webflux.common.poi.POIUtils.writeSlideShow;
 import static io.jrb.labs.webflux.common.poi.POIUtils.writeSlideShowAsBytes;
 
 @Slf4j
 public class BuildSlideShowCommand implements IBuildSlideShowCommand {
 
     private final BuildSlideShowConfig config;
-    private final ISongService songService;
+    private final SlideShowTemplate template;
+    private final Scheduler renderingScheduler;
+    private final SongSlideFragmentCache fragmentCache;
+    private final String configFingerprint;
 
     public BuildSlideShowCommand(
             final BuildSlideShowConfig config,
-            final ISongService songService
+            final SlideShowTemplate template,
+            final Scheduler renderingScheduler,
+            final SongSlideFragmentCache fragmentCache
     ) {
         this.config = config;
-        this.songService = songService;
+        this.template = template;
+        this.renderingScheduler = renderingScheduler;
+        this.fragmentCache = fragmentCache;
+        this.configFingerprint = config.fingerprint();
     }
 
     @Override
     public Mono<IBuildSlideShowContext> run(final IBuildSlideShowContext context) {
-        return Flux.fromIterable(context.getSetListEntity().getSongs())
-                .flatMap(songService::findByTitle)
-                .collect(
-                        this::createSlideshow,
-                        (xss, songEntity) -> {
-                            createSlide(xss, config.blankLayout());
-                            addSong(xss, songEntity);
-                        }
-                )
-                .map(xss -> createSlides(xss, config.trailerSlides()))
-                .map(xss -> context
-                        .setContentType(MediaType.APPLICATION_XML)
-                        .setContent(writeSlideShowAsBytes(xss))
-                );
+        return Mono.fromCallable(() -> setContent(context, renderSlideShow(context)))
+                .subscribeOn(renderingScheduler);
+    }
+
+    @Override
+    public Set<String> requires() {
+        return ImmutableSet.of("setListEntity", "songs", "slideShow");
+    }
+
+    @Override
+    public Set<String> provides() {
+        return ImmutableSet.of("content", "contentType", "contentWriter");
+    }
+
+    private XMLSlideShow renderSlideShow(final IBuildSlideShowContext context) {
+        final Map<String, SongEntity> songs = Optional.ofNullable(context.getSongs()).orElse(ImmutableMap.of());
+        final XMLSlideShow xss = Optional.ofNullable(context.getSlideShow()).orElseGet(this::createSlideshow);
+        context.setSlideShow(null);
+        context.getSetListEntity().getSongs().stream()
+                .filter(title -> isResolved(title, songs))
+                .map(songs::get)
+                .forEach(songEntity -> {
+                    createSlide(xss, template.findLayout(xss, config.blankLayout()));
+                    addSong(xss, songEntity);
+                });
+        return createSlides(xss, template, config.trailerSlides());
+    }
+
+    private IBuildSlideShowContext setContent(final IBuildSlideShowContext context, final XMLSlideShow xss) {
+        context.setContentType(MediaType.APPLICATION_XML);
+        if (config.streamOutput() && !context.isDetached()) {
+            return context.setContentWriter(os -> writeSlideShow(xss, os));
+        } else {
+            return context.setContent(writeSlideShowAsBytes(xss));
+        }
     }
 
     private void addSong(final XMLSlideShow xss, final SongEntity songEntity) {
-        for (final String stanzaName : songEntity.getLyricOrder()) {
-            final XSLFSlide slide = createSlide(xss, config.blankLayout());
-            final XSLFTextParagraph paragraph = createTextRectangle(
-                    xss, slide,
-                    config.margins().left(),
-                    config.margins().top(),
-                    config.margins().right(),
-                    config.margins().bottom()
-            );
-            final List<String> stanzaText = songEntity.getLyrics().get(stanzaName);
-            for (final String line : stanzaText) {
-                final XSLFTextRun textRun = paragraph.addNewTextRun();
-                textRun.setFontSize(config.fontSize());
-                textRun.setFontColor(Color.LIGHT_GRAY);
-                textRun.setText(line);
-                paragraph.addLineBreak();
+        final Dimension pageSize = xss.getPageSize();
+        final List<CTShape> fragment = fragmentCache.find(
+                songEntity, configFingerprint, pageSize, () -> renderSong(pageSize, songEntity));
+        for (final CTShape shape : fragment) {
+            final XSLFSlide slide = createSlide(xss, template.findLayout(xss, config.blankLayout()));
+            slide.getXmlObject().getCSld().getSpTree().addNewSp().set(shape);
+        }
+    }
+
+    private List<CTShape> renderSong(final Dimension pageSize, final SongEntity songEntity) {
+        try (final XMLSlideShow xss = new XMLSlideShow()) {
+            xss.setPageSize(pageSize);
+            final List<CTShape> shapes = new ArrayList<>();
+            for (final String stanzaName : songEntity.getLyricOrder()) {
+                shapes.add(renderStanza(xss, songEntity.getLyrics().get(stanzaName)));
             }
+            return shapes;
+        } catch (final IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
         }
     }
 
-    private XMLSlideShow createSlideshow() {
-        return POIUtils.createSlideshow(config.masterTemplate(), config.leaderSlides());
+    private CTShape renderStanza(final XMLSlideShow xss, final List<String> stanzaText) {
+        final XSLFSlide slide = xss.createSlide();
+        final XSLFTextParagraph paragraph = createTextRectangle(
+                xss, slide,
+                config.margins().left(),
+                config.margins().top(),
+                config.margins().right(),
+                config.margins().bottom()
+        );
+        for (final String line : stanzaText) {
+            final XSLFTextRun textRun = paragraph.addNewTextRun();
+            textRun.setFontSize(config.fontSize());
+            textRun.setFontColor(Color.LIGHT_GRAY);
+            textRun.setText(line);
+            paragraph.addLineBreak();
+        }
+        return (CTShape) paragraph.getParentShape().getXmlObject().copy();
     }
 
+    private boolean isResolved(final String title, final Map<String, SongEntity> songs) {
+        if (songs.containsKey(title)) {
+            return true;
+        }
+        log.warn("Skipping slides for unresolved song [{}]", title);
+        return false;
+    }
+
+    private XMLSlideShow createSlideshow() {
+        return POIUtils.createSlideshow(template, config.leaderSlides());
+    }
 
 }
@@ -23,6 +23,7 @@
  */
 package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
 
+import com.google.common.hash.Hashing;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.experimental.Accessors;
@@ -30,19 +31,111 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.core.io.Resource;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 @Accessors(fluent = true) @Getter
-@AllArgsConstructor
 @ConstructorBinding
 @ConfigurationProperties("module.song.build-slide-show")
 public class BuildSlideShowConfig {
 
     private final String blankLayout;
+    private final DeckCache deckCache;
     private final double fontSize;
+    private final FragmentCache fragmentCache;
     private final String[] leaderSlides;
     private final Margins margins;
     private final Resource masterTemplate;
+    private final SongLookup songLookup;
+    private final boolean streamOutput;
     private final String[] trailerSlides;
 
+    public BuildSlideShowConfig(
+            final String blankLayout,
+            final DeckCache deckCache,
+            final double fontSize,
+            final FragmentCache fragmentCache,
+            final String[] leaderSlides,
+            final Margins margins,
+            final Resource masterTemplate,
+            final SongLookup songLookup,
+            final boolean streamOutput,
+            final String[] trailerSlides
+    ) {
+        this.blankLayout = blankLayout;
+        this.deckCache = Optional.ofNullable(deckCache).orElse(new DeckCache(null, null, null));
+        this.fontSize = fontSize;
+        this.fragmentCache = Optional.ofNullable(fragmentCache).orElse(new FragmentCache(null));
+        this.leaderSlides = leaderSlides;
+        this.margins = margins;
+        this.masterTemplate = masterTemplate;
+        this.songLookup = Optional.ofNullable(songLookup).orElse(new SongLookup(null, null, null));
+        this.streamOutput = streamOutput;
+        this.trailerSlides = trailerSlides;
+    }
+
+    /**
+     * Digests the settings that shape rendered slides, so that cached renderings are never reused across them.
+     *
+     * @return a digest of the rendering settings
+     */
+    public String fingerprint() {
+        return Hashing.sha256().newHasher()
+                .putString(String.valueOf(blankLayout), UTF_8)
+                .putDouble(fontSize)
+                .putString(Arrays.toString(leaderSlides), UTF_8)
+                .putString(Arrays.toString(trailerSlides), UTF_8)
+                .putString(String.valueOf(masterTemplate), UTF_8)
+                .putString(Optional.ofNullable(margins)
+                        .map(m -> m.top() + "," + m.bottom() + "," + m.left() + "," + m.right())
+                        .orElse(""), UTF_8)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * Controls the cache of rendered decks: up to {@code maxSizeInBytes} of decks are kept in memory, and decks evicted
+     * by size are spilled to {@code spillDirectory} until invalidated.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class DeckCache {
+
+        private static final long DEFAULT_MAX_SIZE_IN_BYTES = 64L * 1024 * 1024;
+
+        private final boolean enabled;
+        private final long maxSizeInBytes;
+        private final String spillDirectory;
+
+        public DeckCache(final Boolean enabled, final Long maxSizeInBytes, final String spillDirectory) {
+            this.enabled = Optional.ofNullable(enabled).orElse(false);
+            this.maxSizeInBytes = Optional.ofNullable(maxSizeInBytes).orElse(DEFAULT_MAX_SIZE_IN_BYTES);
+            this.spillDirectory = Optional.ofNullable(spillDirectory)
+                    .orElse(Paths.get(System.getProperty("java.io.tmpdir"), "deck-cache").toString());
+        }
+
+    }
+
+    /**
+     * Controls the cache of rendered per-song slide fragments, holding up to {@code maxSongs} songs; zero disables it.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class FragmentCache {
+
+        private static final long DEFAULT_MAX_SONGS = 1000;
+
+        private final long maxSongs;
+
+        public FragmentCache(final Long maxSongs) {
+            this.maxSongs = Optional.ofNullable(maxSongs).orElse(DEFAULT_MAX_SONGS);
+        }
+
+    }
+
     @Accessors(fluent = true) @Getter
     @AllArgsConstructor
     @ConstructorBinding
@@ -54,4 +147,28 @@ public class BuildSlideShowConfig {
 
     }
 
+    /**
+     * Controls how the songs of a set list are resolved: titles are queried in batches, with at most
+     * {@code concurrency} batch queries in flight and results merged back in set-list order.
+     */
+    @Accessors(fluent = true) @Getter
+    @ConstructorBinding
+    public static class SongLookup {
+
+        private static final int DEFAULT_BATCH_SIZE = 50;
+        private static final int DEFAULT_CONCURRENCY = 4;
+        private static final int DEFAULT_PREFETCH = 1;
+
+        private final int batchSize;
+        private final int concurrency;
+        private final int prefetch;
+
+        public SongLookup(final Integer batchSize, final Integer concurrency, final Integer prefetch) {
+            this.batchSize = Optional.ofNullable(batchSize).orElse(DEFAULT_BATCH_SIZE);
+            this.concurrency = Optional.ofNullable(concurrency).orElse(DEFAULT_CONCURRENCY);
+            this.prefetch = Optional.ofNullable(prefetch).orElse(DEFAULT_PREFETCH);
+        }
+
+    }
+
 }
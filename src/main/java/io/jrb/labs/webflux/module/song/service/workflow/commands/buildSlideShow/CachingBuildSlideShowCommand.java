@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves slide shows from a {@link SlideShowDeckCache}, rendering through the delegate command only on a miss. Decks
+ * are keyed by set list identifier plus a hash of the set list, of every resolved song and of the rendering
+ * configuration, so any content change yields a new key. A streamed deck is captured for the cache only up to the
+ * cache's maximum deck size; a larger deck is streamed without being cached.
+ */
+@Slf4j
+public class CachingBuildSlideShowCommand implements IBuildSlideShowCommand {
+
+    private final IBuildSlideShowCommand delegate;
+    private final SlideShowDeckCache deckCache;
+    private final String configFingerprint;
+
+    public CachingBuildSlideShowCommand(
+            final IBuildSlideShowCommand delegate,
+            final SlideShowDeckCache deckCache,
+            final BuildSlideShowConfig config
+    ) {
+        this.delegate = required(delegate, "delegate");
+        this.deckCache = required(deckCache, "deckCache");
+        this.configFingerprint = required(config, "config").fingerprint();
+    }
+
+    @Override
+    public Mono<IBuildSlideShowContext> run(final IBuildSlideShowContext context) {
+        final String key = deckKey(context);
+        return deckCache.find(key)
+                .map(content -> {
+                    log.debug("Deck cache hit for {}", key);
+                    closeSlideShow(context);
+                    return context.setSlideShow(null).setContentType(MediaType.APPLICATION_XML).setContent(content);
+                })
+                .switchIfEmpty(Mono.defer(() -> delegate.run(context).flatMap(ctx -> cache(key, ctx))));
+    }
+
+    @Override
+    public Set<String> requires() {
+        return delegate.requires();
+    }
+
+    @Override
+    public Set<String> provides() {
+        return delegate.provides();
+    }
+
+    @Override
+    public boolean isDurable() {
+        return delegate.isDurable();
+    }
+
+    @Override
+    public String stepName() {
+        return delegate.stepName();
+    }
+
+    private Mono<IBuildSlideShowContext> cache(final String key, final IBuildSlideShowContext context) {
+        final String setListId = context.getSetListEntity().getId();
+        final Set<String> songIds = songs(context).values().stream().map(SongEntity::getId).collect(Collectors.toSet());
+        if (context.getContent() != null) {
+            return deckCache.put(key, setListId, songIds, context.getContent())
+                    .onErrorResume(e -> {
+                        log.warn("Unable to cache deck " + key, e);
+                        return Mono.empty();
+                    })
+                    .thenReturn(context);
+        } else if (context.getContentWriter() != null) {
+            final Consumer<OutputStream> contentWriter = context.getContentWriter();
+            return Mono.just(context.setContentWriter(os -> {
+                final BoundedCopyOutputStream copy = new BoundedCopyOutputStream(deckCache.maxDeckSize());
+                contentWriter.accept(new TeeOutputStream(os, copy));
+                copy.content().ifPresent(content -> deckCache.put(key, setListId, songIds, content)
+                        .subscribe(v -> { }, e -> log.warn("Unable to cache deck " + key, e)));
+            }));
+        } else {
+            return Mono.just(context);
+        }
+    }
+
+    private void closeSlideShow(final IBuildSlideShowContext context) {
+        if (context.getSlideShow() != null) {
+            try {
+                context.getSlideShow().close();
+            } catch (final IOException e) {
+                log.warn("Unable to close slide show for " + context.getSetListEntity().getId(), e);
+            }
+        }
+    }
+
+    private String deckKey(final IBuildSlideShowContext context) {
+        final SetListEntity setList = context.getSetListEntity();
+        final Hasher hasher = Hashing.sha256().newHasher()
+                .putString(configFingerprint, UTF_8)
+                .putString(String.valueOf(setList), UTF_8);
+        songs(context).forEach((title, song) -> hasher.putString(String.valueOf(song), UTF_8));
+        return setList.getId() + ":" + hasher.hash();
+    }
+
+    private Map<String, SongEntity> songs(final IBuildSlideShowContext context) {
+        return Optional.ofNullable(context.getSongs()).orElse(ImmutableMap.of());
+    }
+
+    /**
+     * Keeps a copy of the bytes written through it, giving up on the copy once it would exceed a size limit.
+     */
+    private static final class BoundedCopyOutputStream extends OutputStream {
+
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private BoundedCopyOutputStream(final long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(final int b) {
+            if (copy != null && copy.size() + 1L > limit) {
+                copy = null;
+            } else if (copy != null) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            if (copy != null && copy.size() + (long) len > limit) {
+                copy = null;
+            } else if (copy != null) {
+                copy.write(b, off, len);
+            }
+        }
+
+        private Optional<byte[]> content() {
+            return Optional.ofNullable(copy).map(ByteArrayOutputStream::toByteArray);
+        }
+
+    }
+
+}
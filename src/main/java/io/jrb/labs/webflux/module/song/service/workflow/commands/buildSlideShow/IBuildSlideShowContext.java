@@ -26,18 +26,34 @@ package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow
 import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
 import io.jrb.labs.webflux.module.song.model.SetListEntity;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.springframework.http.MediaType;
 
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IBuildSlideShowContext extends IWorkflowContext {
 
+    byte[] getContent();
+
+    Consumer<OutputStream> getContentWriter();
+
+    List<String> getMissingSongs();
+
     SetListEntity getSetListEntity();
 
+    XMLSlideShow getSlideShow();
+
     Map<String, SongEntity> getSongs();
 
     IBuildSlideShowContext setContent(byte[] content);
 
     IBuildSlideShowContext setContentType(MediaType contentType);
 
+    IBuildSlideShowContext setContentWriter(Consumer<OutputStream> contentWriter);
+
+    IBuildSlideShowContext setSlideShow(XMLSlideShow slideShow);
+
 }
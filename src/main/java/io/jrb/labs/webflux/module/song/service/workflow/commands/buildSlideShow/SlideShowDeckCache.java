@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import io.jrb.labs.webflux.common.service.crud.event.CrudServiceEvent;
+import io.jrb.labs.webflux.common.service.crud.event.DeleteEntityEvent;
+import io.jrb.labs.webflux.common.service.crud.event.UpdateEntityEvent;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+
+/**
+ * Caches rendered slide show decks. Decks are held in memory up to a total size; decks evicted by size are spilled to
+ * disk and promoted back on their next hit. Each deck remembers the set list and songs it was rendered from, and is
+ * dropped from both tiers when any of them is updated or deleted. Each cache spills into a subdirectory of its own
+ * under the configured spill directory, and only ever deletes the decks it wrote there.
+ */
+@Slf4j
+public class SlideShowDeckCache implements AutoCloseable {
+
+    private final Cache<String, byte[]> memory;
+    private final Map<String, DeckSource> sources = new ConcurrentHashMap<>();
+    private final long maxSizeInBytes;
+    private final Path spillDirectory;
+    private final Scheduler ioScheduler;
+
+    public SlideShowDeckCache(final BuildSlideShowConfig.DeckCache config, final MeterRegistry meterRegistry) {
+        this(config, meterRegistry, Schedulers.boundedElastic());
+    }
+
+    public SlideShowDeckCache(
+            final BuildSlideShowConfig.DeckCache config,
+            final MeterRegistry meterRegistry,
+            final Scheduler ioScheduler
+    ) {
+        required(config, "config");
+        this.maxSizeInBytes = config.maxSizeInBytes();
+        this.spillDirectory = createSpillDirectory(Paths.get(config.spillDirectory()));
+        this.ioScheduler = required(ioScheduler, "ioScheduler");
+        this.memory = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .<String, byte[]>weigher((key, content) -> content.length)
+                .removalListener(this::spill)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(required(meterRegistry, "meterRegistry"), memory, "slides.decks");
+    }
+
+    @Override
+    public void close() {
+        sources.clear();
+        memory.invalidateAll();
+        try (final DirectoryStream<Path> decks = Files.newDirectoryStream(spillDirectory, "*.deck")) {
+            for (final Path deck : decks) {
+                Files.deleteIfExists(deck);
+            }
+            Files.deleteIfExists(spillDirectory);
+        } catch (final Exception e) {
+            log.warn("Unable to remove deck spill directory " + spillDirectory, e);
+        }
+    }
+
+    public Mono<byte[]> find(final String key) {
+        return Mono.defer(() -> {
+            final byte[] content = memory.getIfPresent(key);
+            if (content != null) {
+                return Mono.just(content);
+            } else if (sources.containsKey(key)) {
+                return Mono.fromCallable(() -> unspill(key)).subscribeOn(ioScheduler);
+            } else {
+                return Mono.empty();
+            }
+        });
+    }
+
+    /**
+     * @return the size of the largest deck worth capturing for this cache
+     */
+    public long maxDeckSize() {
+        return maxSizeInBytes;
+    }
+
+    public Mono<Void> put(final String key, final String setListId, final Set<String> songIds, final byte[] content) {
+        return Mono.<Void>fromRunnable(() -> {
+            sources.put(key, new DeckSource(setListId, songIds));
+            memory.put(key, content);
+        }).subscribeOn(ioScheduler);
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    @EventListener
+    public void onDelete(final DeleteEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    private void invalidate(final CrudServiceEvent<?> event) {
+        final Object entity = event.getSource();
+        if (entity instanceof SetListEntity) {
+            final String setListId = ((SetListEntity) entity).getId();
+            sources.forEach((key, source) -> {
+                if (source.getSetListId().equals(setListId)) {
+                    invalidate(key);
+                }
+            });
+        } else if (entity instanceof SongEntity) {
+            final String songId = ((SongEntity) entity).getId();
+            sources.forEach((key, source) -> {
+                if (source.getSongIds().contains(songId)) {
+                    invalidate(key);
+                }
+            });
+        }
+    }
+
+    private void invalidate(final String key) {
+        log.debug("Invalidating deck {}", key);
+        sources.remove(key);
+        memory.invalidate(key);
+        try {
+            Files.deleteIfExists(spillFile(key));
+        } catch (final Exception e) {
+            log.warn("Unable to delete spilled deck " + key, e);
+        }
+    }
+
+    private void spill(final RemovalNotification<String, byte[]> notification) {
+        if (notification.getCause() == RemovalCause.SIZE && sources.containsKey(notification.getKey())) {
+            try {
+                Files.write(spillFile(notification.getKey()), notification.getValue());
+            } catch (final Exception e) {
+                log.warn("Unable to spill deck " + notification.getKey(), e);
+                sources.remove(notification.getKey());
+            }
+        }
+    }
+
+    private byte[] unspill(final String key) throws Exception {
+        try {
+            final byte[] content = Files.readAllBytes(spillFile(key));
+            if (sources.containsKey(key)) {
+                memory.put(key, content);
+                Files.deleteIfExists(spillFile(key));
+            }
+            return content;
+        } catch (final NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private Path spillFile(final String key) {
+        return spillDirectory.resolve(key.replace(':', '_') + ".deck");
+    }
+
+    private static Path createSpillDirectory(final Path baseDirectory) {
+        try {
+            Files.createDirectories(baseDirectory);
+            return Files.createTempDirectory(baseDirectory, "decks-");
+        } catch (final Exception e) {
+            throw new RuntimeException("Unable to prepare deck spill directory under " + baseDirectory, e);
+        }
+    }
+
+    @Value
+    private static class DeckSource {
+        private final String setListId;
+        private final Set<String> songIds;
+    }
+
+}
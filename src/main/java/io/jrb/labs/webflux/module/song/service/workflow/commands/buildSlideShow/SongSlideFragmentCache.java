@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.jrb.labs.webflux.common.service.crud.event.CrudServiceEvent;
+import io.jrb.labs.webflux.common.service.crud.event.DeleteEntityEvent;
+import io.jrb.labs.webflux.common.service.crud.event.UpdateEntityEvent;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.Value;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTShape;
+import org.springframework.context.event.EventListener;
+
+import java.awt.Dimension;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static io.jrb.labs.webflux.common.validation.Validation.required;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Caches the rendered slide shapes of each song, one text shape per stanza slide, so that decks sharing songs only
+ * lay out the songs not seen before. Fragments are keyed by song identifier, a hash of the song content, the
+ * {@link BuildSlideShowConfig#fingerprint() fingerprint} of the rendering settings and the page size, and are dropped
+ * when the song is updated or deleted.
+ */
+public class SongSlideFragmentCache {
+
+    private final Cache<FragmentKey, List<CTShape>> fragments;
+
+    public SongSlideFragmentCache(final BuildSlideShowConfig.FragmentCache config, final MeterRegistry meterRegistry) {
+        required(config, "config");
+        this.fragments = CacheBuilder.newBuilder()
+                .maximumSize(config.maxSongs())
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(required(meterRegistry, "meterRegistry"), fragments, "slides.fragments");
+    }
+
+    /**
+     * Finds the fragment of a song, rendering it on a miss. The shapes returned are shared, and must only be copied.
+     *
+     * @param song the song
+     * @param configFingerprint the fingerprint of the rendering settings
+     * @param pageSize the page size of the deck
+     * @param renderer renders the fragment of the song
+     * @return the stanza shapes of the song
+     */
+    public List<CTShape> find(
+            final SongEntity song,
+            final String configFingerprint,
+            final Dimension pageSize,
+            final Supplier<List<CTShape>> renderer
+    ) {
+        try {
+            final FragmentKey key = new FragmentKey(song.getId(), contentHash(song), configFingerprint, pageSize);
+            return fragments.get(key, renderer::get);
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    @EventListener
+    public void onDelete(final DeleteEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    private void invalidate(final CrudServiceEvent<?> event) {
+        if (event.getSource() instanceof SongEntity) {
+            final String songId = ((SongEntity) event.getSource()).getId();
+            fragments.asMap().keySet().removeIf(key -> Objects.equals(key.getSongId(), songId));
+        }
+    }
+
+    private String contentHash(final SongEntity song) {
+        return Hashing.sha256().hashString(String.valueOf(song), UTF_8).toString();
+    }
+
+    @Value
+    private static class FragmentKey {
+        private final String songId;
+        private final String contentHash;
+        private final String configFingerprint;
+        private final Dimension pageSize;
+    }
+
+}
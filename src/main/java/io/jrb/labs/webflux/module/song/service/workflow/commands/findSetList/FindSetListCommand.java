@@ -23,10 +23,13 @@
  */
 package io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList;
 
+import com.google.common.collect.ImmutableSet;
 import io.jrb.labs.webflux.module.song.service.ISetListService;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
+
 @Slf4j
 public class FindSetListCommand implements IFindSetListCommand {
 
@@ -42,4 +45,14 @@ public class FindSetListCommand implements IFindSetListCommand {
                 .map(context::setSetListEntity);
     }
 
+    @Override
+    public Set<String> requires() {
+        return ImmutableSet.of("setListName");
+    }
+
+    @Override
+    public Set<String> provides() {
+        return ImmutableSet.of("setListEntity");
+    }
+
 }
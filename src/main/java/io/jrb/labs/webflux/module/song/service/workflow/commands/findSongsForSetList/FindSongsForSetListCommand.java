@@ -23,34 +23,77 @@
  */
 package io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import io.jrb.labs.webflux.module.song.model.SetListEntity;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 import io.jrb.labs.webflux.module.song.service.ISongService;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+@Slf4j
 public class FindSongsForSetListCommand implements IFindSongsForSetListCommand {
 
     private final ISongService songService;
+    private final BuildSlideShowConfig.SongLookup songLookup;
 
-    public FindSongsForSetListCommand(final ISongService songService) {
+    public FindSongsForSetListCommand(
+            final ISongService songService,
+            final BuildSlideShowConfig.SongLookup songLookup
+    ) {
         this.songService = songService;
+        this.songLookup = songLookup;
     }
 
     @Override
     public Mono<IFindSongsForSetListContext> run(final IFindSongsForSetListContext context) {
         final SetListEntity setList = context.getSetListEntity();
-        return Mono.just(setList.getSongs())
-                .flatMapMany(Flux::fromIterable)
-                .flatMap(songService::findByTitle)
+        return Flux.fromIterable(Lists.partition(titles(setList), songLookup.batchSize()))
+                .flatMapSequential(songService::findByTitles, songLookup.concurrency(), songLookup.prefetch())
                 .collect(
-                        (Supplier<HashMap<String, SongEntity>>) HashMap::new,
+                        (Supplier<LinkedHashMap<String, SongEntity>>) LinkedHashMap::new,
                         (map, song) -> map.put(song.getTitle(), song)
                 )
-                .map(context::setSongs);
+                .map(songs -> context
+                        .setMissingSongs(findMissingSongs(setList, songs.keySet()))
+                        .setSongs(songs)
+                );
+    }
+
+    @Override
+    public Set<String> requires() {
+        return ImmutableSet.of("setListEntity");
+    }
+
+    @Override
+    public Set<String> provides() {
+        return ImmutableSet.of("songs", "missingSongs");
+    }
+
+    private List<String> findMissingSongs(final SetListEntity setList, final Collection<String> foundTitles) {
+        final List<String> missingSongs = titles(setList).stream()
+                .filter(title -> !foundTitles.contains(title))
+                .distinct()
+                .collect(Collectors.toList());
+        if (!missingSongs.isEmpty()) {
+            log.warn("Unable to find songs for set list [{}] - missingSongs = {}", setList.getName(), missingSongs);
+        }
+        return missingSongs;
+    }
+
+    private List<String> titles(final SetListEntity setList) {
+        return Optional.ofNullable(setList.getSongs()).orElse(ImmutableList.of());
     }
 
 }
@@ -27,12 +27,15 @@ import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
 import io.jrb.labs.webflux.module.song.model.SetListEntity;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 
+import java.util.List;
 import java.util.Map;
 
 public interface IFindSongsForSetListContext extends IWorkflowContext {
 
     SetListEntity getSetListEntity();
 
+    IFindSongsForSetListContext setMissingSongs(List<String> missingSongs);
+
     IFindSongsForSetListContext setSongs(Map<String, SongEntity> songs);
 
 }
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.poi.POIUtils;
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Opens a new slide show from the master template, with its leader slides, independently of the set list content.
+ * The slide show is closed again when a later step fails.
+ */
+@Slf4j
+public class OpenSlideShowCommand implements IOpenSlideShowCommand {
+
+    private final BuildSlideShowConfig config;
+    private final SlideShowTemplate template;
+    private final Scheduler renderingScheduler;
+
+    public OpenSlideShowCommand(
+            final BuildSlideShowConfig config,
+            final SlideShowTemplate template,
+            final Scheduler renderingScheduler
+    ) {
+        this.config = config;
+        this.template = template;
+        this.renderingScheduler = renderingScheduler;
+    }
+
+    @Override
+    public Mono<IOpenSlideShowContext> run(final IOpenSlideShowContext context) {
+        return Mono.fromCallable(() -> context.setSlideShow(POIUtils.createSlideshow(template, config.leaderSlides())))
+                .subscribeOn(renderingScheduler);
+    }
+
+    @Override
+    public Mono<Void> compensate(final IOpenSlideShowContext context) {
+        return Mono.fromRunnable(() -> {
+            final XMLSlideShow slideShow = context.getSlideShow();
+            if (slideShow != null) {
+                context.setSlideShow(null);
+                try {
+                    slideShow.close();
+                } catch (final IOException e) {
+                    log.warn("Unable to close slide show - claimTicket = " + context.getClaimTicket(), e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public Set<String> provides() {
+        return ImmutableSet.of("slideShow");
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class FileWorkflowPayloadStoreTest {
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    public void givenMissingBaseDirectoryThenCreateShardOnSave() throws Exception {
+        final Path baseDirectory = tempDirectory.resolve("payloads");
+        final FileWorkflowPayloadStore store = new FileWorkflowPayloadStore(
+                baseDirectory.toString(),
+                WorkflowModuleConfig.Fsync.FILE,
+                Schedulers.immediate()
+        );
+
+        StepVerifier.create(store.save("ticket", new byte[] { 1, 2, 3 })
+                .then(store.save("ticket", new byte[] { 4, 5 })))
+                .verifyComplete();
+
+        assertThat(listFileNames(baseDirectory), contains("workflow-state"));
+        final Path payloadFile =
+                WorkflowFileUtils.shardedFile(baseDirectory.resolve("workflow-state"), "ticket", "_payload.raw");
+        assertThat(Files.isRegularFile(payloadFile), is(true));
+        StepVerifier.create(store.find("ticket"))
+                .assertNext(payload -> assertThat(payload, is(new byte[] { 4, 5 })))
+                .verifyComplete();
+
+        StepVerifier.create(store.delete("ticket")).verifyComplete();
+        StepVerifier.create(store.find("ticket")).verifyComplete();
+    }
+
+    @Test
+    public void givenPayloadSavedBeforeShardingThenReadAndDeleteIt() throws Exception {
+        final FileWorkflowPayloadStore store = new FileWorkflowPayloadStore(
+                tempDirectory.toString(),
+                WorkflowModuleConfig.Fsync.NONE,
+                Schedulers.immediate()
+        );
+        Files.write(tempDirectory.resolve("ticket_payload.raw"), new byte[] { 1, 2, 3 });
+
+        StepVerifier.create(store.find("ticket"))
+                .assertNext(payload -> assertThat(payload, is(new byte[] { 1, 2, 3 })))
+                .verifyComplete();
+
+        StepVerifier.create(store.delete("ticket")).verifyComplete();
+        assertThat(Files.exists(tempDirectory.resolve("ticket_payload.raw")), is(false));
+    }
+
+    private List<String> listFileNames(final Path directory) throws Exception {
+        try (final Stream<Path> paths = Files.list(directory)) {
+            return paths.map(Path::getFileName).map(Path::toString).collect(Collectors.toList());
+        }
+    }
+
+}
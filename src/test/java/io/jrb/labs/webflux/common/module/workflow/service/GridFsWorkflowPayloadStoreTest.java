@@ -0,0 +1,46 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.ReactiveGridFsTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GridFsWorkflowPayloadStoreTest {
+
+    @Mock
+    private ReactiveGridFsTemplate gridFsTemplate;
+
+    @Test
+    public void givenExistingPayloadThenDeleteItOnlyOnceReplacementIsStored() {
+        final ObjectId fileId = new ObjectId();
+        when(gridFsTemplate.store(any(), eq("ticket"))).thenReturn(Mono.just(fileId));
+        when(gridFsTemplate.delete(any(Query.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(new GridFsWorkflowPayloadStore(gridFsTemplate).save("ticket", new byte[] { 1, 2, 3 }))
+                .verifyComplete();
+
+        final InOrder order = inOrder(gridFsTemplate);
+        order.verify(gridFsTemplate).store(any(), eq("ticket"));
+        final ArgumentCaptor<Query> deleted = ArgumentCaptor.forClass(Query.class);
+        order.verify(gridFsTemplate).delete(deleted.capture());
+        assertThat(deleted.getValue().getQueryObject().get("filename"), is("ticket"));
+        assertThat(deleted.getValue().getQueryObject().get("_id", Document.class).get("$ne"), is(fileId));
+    }
+
+}
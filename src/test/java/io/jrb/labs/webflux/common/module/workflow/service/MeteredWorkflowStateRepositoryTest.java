@@ -0,0 +1,41 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MeteredWorkflowStateRepositoryTest {
+
+    @Mock
+    private IWorkflowStateRepository delegate;
+
+    @Test
+    public void givenWriteBehindDelegateThenFlushOnClose() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        when(delegate.save(eq(context.getClaimTicket()), eq(context))).thenReturn(Mono.empty());
+        final MeteredWorkflowStateRepository repository = new MeteredWorkflowStateRepository(
+                new WriteBehindWorkflowStateRepository(delegate, new SmileWorkflowContextCodec(), Duration.ofHours(1)),
+                new SimpleMeterRegistry()
+        );
+        repository.save(context.getClaimTicket(), context).block();
+
+        repository.close();
+
+        verify(delegate).save(eq(context.getClaimTicket()), eq(context));
+    }
+
+}
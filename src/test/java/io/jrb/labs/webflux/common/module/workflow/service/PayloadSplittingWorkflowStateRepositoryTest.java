@@ -0,0 +1,105 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PayloadSplittingWorkflowStateRepositoryTest {
+
+    private static final int THRESHOLD = 16;
+
+    @Mock
+    private IWorkflowStateRepository delegate;
+
+    @Mock
+    private IWorkflowPayloadStore payloadStore;
+
+    private PayloadSplittingWorkflowStateRepository repository;
+
+    @BeforeEach
+    public void init() {
+        repository = new PayloadSplittingWorkflowStateRepository(delegate, payloadStore, THRESHOLD);
+    }
+
+    @Test
+    public void givenLargePayloadThenStoreItOutOfLine() {
+        final byte[] payload = new byte[THRESHOLD];
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .content(payload)
+                .build();
+        final String key = context.getClaimTicket();
+        when(payloadStore.save(key, payload)).thenReturn(Mono.empty());
+        when(delegate.save(eq(key), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+
+        final ArgumentCaptor<BuildSlidesWorkflowContext> saved = ArgumentCaptor.forClass(BuildSlidesWorkflowContext.class);
+        verify(delegate).save(eq(key), saved.capture());
+        assertThat(saved.getValue().getContent(), is(nullValue()));
+        assertThat(saved.getValue().getPayloadId(), is(key));
+        assertThat(context.getContent(), is(payload));
+
+        when(delegate.find(key, BuildSlidesWorkflowContext.class)).thenReturn(Mono.just(saved.getValue()));
+        when(payloadStore.find(key)).thenReturn(Mono.just(payload));
+
+        StepVerifier.create(repository.find(key, BuildSlidesWorkflowContext.class))
+                .expectNextMatches(found -> found.getContent() == payload)
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenUnchangedPayloadThenStoreItOnce() {
+        final byte[] payload = new byte[THRESHOLD];
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .content(payload)
+                .build();
+        final String key = context.getClaimTicket();
+        when(payloadStore.save(eq(key), any())).thenReturn(Mono.empty());
+        when(delegate.save(eq(key), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)
+                .then(Mono.defer(() -> repository.save(key, context.setStatus(WorkflowStatus.COMPLETED)))))
+                .verifyComplete();
+        verify(payloadStore, times(1)).save(key, payload);
+
+        final byte[] rebuilt = new byte[THRESHOLD];
+        rebuilt[0] = 1;
+        StepVerifier.create(repository.save(key, context.setContent(rebuilt))).verifyComplete();
+        verify(payloadStore).save(key, rebuilt);
+    }
+
+    @Test
+    public void givenSmallPayloadThenKeepItInline() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .content(new byte[THRESHOLD - 1])
+                .build();
+        final String key = context.getClaimTicket();
+        when(delegate.save(key, context)).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+
+        verify(payloadStore, never()).save(anyString(), any());
+    }
+
+}
@@ -0,0 +1,37 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.Test;
+
+import static io.jrb.labs.webflux.common.module.workflow.service.WorkflowContextFixtures.buildSlidesContext;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SmileWorkflowContextCodecTest {
+
+    private final SmileWorkflowContextCodec codec = new SmileWorkflowContextCodec();
+
+    @Test
+    public void givenContextThenRoundTrip() {
+        final BuildSlidesWorkflowContext context = buildSlidesContext(5, 1024);
+        context.setContentWriter(os -> {});
+
+        final IWorkflowContext decoded = codec.decode(codec.encode(context), IWorkflowContext.class);
+
+        assertThat(decoded, is(instanceOf(BuildSlidesWorkflowContext.class)));
+        context.setContentWriter(null);
+        assertThat(decoded, is(context));
+    }
+
+    @Test
+    public void givenUnexpectedContextClassThenFail() {
+        final byte[] data = codec.encode(buildSlidesContext(1, 16));
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(data, OtherContext.class));
+    }
+
+    private interface OtherContext extends IWorkflowContext {}
+
+}
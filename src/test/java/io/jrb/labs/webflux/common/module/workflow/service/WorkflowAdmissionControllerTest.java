@@ -0,0 +1,70 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class WorkflowAdmissionControllerTest {
+
+    private static final String WORKFLOW_NAME = "build-slides";
+
+    private SimpleMeterRegistry meterRegistry;
+    private WorkflowAdmissionController controller;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new WorkflowAdmissionController(
+                ImmutableMap.of(WORKFLOW_NAME, new WorkflowModuleConfig.Admission(1, 1, 7L)),
+                new WorkflowModuleConfig.Admission(null, null, null),
+                meterRegistry
+        );
+    }
+
+    @Test
+    public void givenFullWorkflowThenQueueThenReject() {
+        final MonoProcessor<String> first = MonoProcessor.create();
+
+        StepVerifier.create(controller.admit(WORKFLOW_NAME, () -> first))
+                .then(() -> StepVerifier.create(controller.admit(WORKFLOW_NAME, () -> Mono.just("second")))
+                        .then(() -> StepVerifier.create(controller.admit(WORKFLOW_NAME, () -> Mono.just("third")))
+                                .expectErrorMatches(e -> e instanceof WorkflowRejectedException
+                                        && ((WorkflowRejectedException) e).getRetryAfterInSec() == 7L)
+                                .verify())
+                        .then(() -> first.onNext("first"))
+                        .expectNext("second")
+                        .verifyComplete())
+                .expectNext("first")
+                .verifyComplete();
+
+        assertThat(count("admitted"), is(2.0));
+        assertThat(count("queued"), is(1.0));
+        assertThat(count("rejected"), is(1.0));
+        assertThat(meterRegistry.get("workflow.admission.running").gauge().value(), is(0.0));
+    }
+
+    @Test
+    public void givenCancelledWaiterThenReleaseItsPlace() {
+        final MonoProcessor<String> first = MonoProcessor.create();
+        controller.admit(WORKFLOW_NAME, () -> first).subscribe();
+        controller.admit(WORKFLOW_NAME, () -> Mono.just("cancelled")).subscribe().dispose();
+
+        StepVerifier.create(controller.admit(WORKFLOW_NAME, () -> Mono.just("queued")))
+                .then(() -> first.onNext("first"))
+                .expectNext("queued")
+                .verifyComplete();
+    }
+
+    private double count(final String outcome) {
+        return meterRegistry.get("workflow.admission").tag("outcome", outcome).counter().count();
+    }
+
+}
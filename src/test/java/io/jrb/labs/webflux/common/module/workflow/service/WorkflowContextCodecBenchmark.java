@@ -0,0 +1,84 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.jrb.labs.webflux.common.module.workflow.service.WorkflowContextFixtures.buildSlidesContext;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the size and the encode/decode time of the workflow context codecs on a build-slides context carrying
+ * 40 songs and a 400 KB deck. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class WorkflowContextCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 1000;
+
+    @Test
+    public void compareCodecs() {
+        final BuildSlidesWorkflowContext context = buildSlidesContext(40, 400 * 1024);
+        final BuildSlidesWorkflowContext metadataOnly = buildSlidesContext(40, 0);
+
+        final Result java = measure(new JavaWorkflowContextCodec(), context);
+        final Result smile = measure(new SmileWorkflowContextCodec(), context);
+        final Result javaNoContent = measure(new JavaWorkflowContextCodec(), metadataOnly);
+        final Result smileNoContent = measure(new SmileWorkflowContextCodec(), metadataOnly);
+
+        System.out.printf("%-22s %10s %12s %12s%n", "codec", "bytes", "encode (us)", "decode (us)");
+        java.print("java");
+        smile.print("smile");
+        javaNoContent.print("java (no content)");
+        smileNoContent.print("smile (no content)");
+
+        assertThat(smile.size, lessThan(java.size));
+        assertThat(smileNoContent.size, lessThan(javaNoContent.size));
+    }
+
+    private static Result measure(final IWorkflowContextCodec codec, final BuildSlidesWorkflowContext context) {
+        byte[] encoded = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            encoded = codec.encode(context);
+            codec.decode(encoded, IWorkflowContext.class);
+        }
+
+        final long encodeStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            encoded = codec.encode(context);
+        }
+        final long encodeNanos = System.nanoTime() - encodeStart;
+
+        final long decodeStart = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            codec.decode(encoded, IWorkflowContext.class);
+        }
+        final long decodeNanos = System.nanoTime() - decodeStart;
+
+        return new Result(encoded.length, encodeNanos / MEASURED_ITERATIONS, decodeNanos / MEASURED_ITERATIONS);
+    }
+
+    private static class Result {
+
+        private final int size;
+        private final long encodeNanos;
+        private final long decodeNanos;
+
+        Result(final int size, final long encodeNanos, final long decodeNanos) {
+            this.size = size;
+            this.encodeNanos = encodeNanos;
+            this.decodeNanos = decodeNanos;
+        }
+
+        void print(final String name) {
+            System.out.printf("%-22s %10d %12d %12d%n", name, size,
+                    TimeUnit.NANOSECONDS.toMicros(encodeNanos), TimeUnit.NANOSECONDS.toMicros(decodeNanos));
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.jrb.labs.webflux.module.song.model.SongType;
+import io.jrb.labs.webflux.module.song.model.Source;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.springframework.http.MediaType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
+
+final class WorkflowContextFixtures {
+
+    private WorkflowContextFixtures() {}
+
+    static BuildSlidesWorkflowContext buildSlidesContext(final int songCount, final int contentSize) {
+        final Map<String, SongEntity> songs = new LinkedHashMap<>();
+        for (int i = 0; i < songCount; i++) {
+            final SongEntity song = song("Song " + i);
+            songs.put(song.getTitle(), song);
+        }
+        final byte[] content = new byte[contentSize];
+        new Random(42).nextBytes(content);
+        return BuildSlidesWorkflowContext.builder()
+                .setListName("set-list")
+                .setListEntity(SetListEntity.builder()
+                        .id(randomAlphabetic(24))
+                        .name("set-list")
+                        .songs(ImmutableList.copyOf(songs.keySet()))
+                        .build())
+                .songs(songs)
+                .missingSongs(ImmutableList.of())
+                .content(content)
+                .contentType(MediaType.APPLICATION_XML)
+                .status(WorkflowStatus.COMPLETED)
+                .build();
+    }
+
+    private static SongEntity song(final String title) {
+        final ImmutableMap.Builder<String, List<String>> lyrics = ImmutableMap.builder();
+        final ImmutableList.Builder<String> lyricOrder = ImmutableList.builder();
+        for (int stanza = 1; stanza <= 6; stanza++) {
+            final String stanzaName = "verse" + stanza;
+            lyrics.put(stanzaName, ImmutableList.of(
+                    randomAlphabetic(30, 50), randomAlphabetic(30, 50), randomAlphabetic(30, 50), randomAlphabetic(30, 50)
+            ));
+            lyricOrder.add(stanzaName);
+        }
+        return SongEntity.builder()
+                .id(randomAlphabetic(24))
+                .type(SongType.NORMAL)
+                .title(title)
+                .authors(ImmutableList.of(randomAlphabetic(10, 20)))
+                .additionalTitles(ImmutableList.of())
+                .themes(ImmutableList.of("praise"))
+                .lyrics(lyrics.build())
+                .lyricOrder(lyricOrder.build())
+                .source(Source.builder().sourceId(randomAlphabetic(8)).sourceSystem("demo").build())
+                .build();
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowEvent;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class WorkflowEventBroadcasterTest {
+
+    private static final String CLAIM_TICKET = "ticket";
+
+    private final WorkflowEventBroadcaster broadcaster = new WorkflowEventBroadcaster(Duration.ofMinutes(1));
+
+    @Test
+    public void givenUnknownClaimTicketThenNoEvents() {
+        assertThat(broadcaster.events(CLAIM_TICKET).isPresent(), is(false));
+    }
+
+    @Test
+    public void givenPublishedEventsThenReplayUntilTerminalStatus() {
+        broadcaster.publish(event(WorkflowStatus.RUNNING, null));
+
+        StepVerifier.create(broadcaster.events(CLAIM_TICKET).orElseThrow(IllegalStateException::new))
+                .expectNextMatches(e -> e.getStatus() == WorkflowStatus.RUNNING)
+                .then(() -> broadcaster.publish(event(WorkflowStatus.RUNNING, "FindSetListCommand")))
+                .expectNextMatches(e -> "FindSetListCommand".equals(e.getStep()))
+                .then(() -> broadcaster.publish(event(WorkflowStatus.COMPLETED, null)))
+                .expectNextMatches(e -> e.getStatus() == WorkflowStatus.COMPLETED)
+                .verifyComplete();
+
+        StepVerifier.create(broadcaster.events(CLAIM_TICKET).orElseThrow(IllegalStateException::new))
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    private WorkflowEvent event(final WorkflowStatus status, final String step) {
+        return WorkflowEvent.builder()
+                .claimTicket(CLAIM_TICKET)
+                .workflowName("build-slides")
+                .status(status)
+                .step(step)
+                .timestamp(Instant.now())
+                .build();
+    }
+
+}
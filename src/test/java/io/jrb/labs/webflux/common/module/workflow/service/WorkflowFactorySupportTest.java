@@ -0,0 +1,209 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WorkflowFactorySupportTest {
+
+    @Mock
+    private IWorkflowStateRepository workflowStateRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void givenIndependentStepsThenRunThemTogether() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final TestCommand first = new TestCommand("first", ImmutableSet.of(), ImmutableSet.of("a"), Duration.ofMillis(50));
+        final TestCommand second = new TestCommand("second", ImmutableSet.of(), ImmutableSet.of("b"), Duration.ZERO);
+        final TestCommand last = new TestCommand("last", ImmutableSet.of("a", "b"), ImmutableSet.of(), Duration.ZERO);
+
+        StepVerifier.create(new TestFactory(last, first, second).createWorkflow(new BuildSlidesWorkflowContext()))
+                .assertNext(context -> assertThat(context.getStatus(), is(WorkflowStatus.COMPLETED)))
+                .verifyComplete();
+
+        assertThat(events, contains("start:first", "start:second", "end:second", "end:first", "start:last", "end:last"));
+        // running, one save per stage, completed
+        verify(workflowStateRepository, times(4)).save(anyString(), any());
+    }
+
+    @Test
+    public void givenConcurrentStepsProvidingSamePropertyThenFail() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final TestCommand first = new TestCommand("first", ImmutableSet.of(), ImmutableSet.of("a"), Duration.ZERO);
+        final TestCommand second = new TestCommand("second", ImmutableSet.of(), ImmutableSet.of("a"), Duration.ZERO);
+
+        StepVerifier.create(new TestFactory(first, second).createWorkflow(new BuildSlidesWorkflowContext()))
+                .verifyError(IllegalArgumentException.class);
+        assertThat(events.isEmpty(), is(true));
+    }
+
+    @Test
+    public void givenCyclicStepsThenFail() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final TestCommand first = new TestCommand("first", ImmutableSet.of("b"), ImmutableSet.of("a"), Duration.ZERO);
+        final TestCommand second = new TestCommand("second", ImmutableSet.of("a"), ImmutableSet.of("b"), Duration.ZERO);
+
+        StepVerifier.create(new TestFactory(first, second).createWorkflow(new BuildSlidesWorkflowContext()))
+                .verifyError(IllegalArgumentException.class);
+        assertThat(events.isEmpty(), is(true));
+    }
+
+    @Test
+    public void givenTransientFailureThenRetryStep() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final AtomicInteger attempts = new AtomicInteger();
+        final TestCommand flaky = new TestCommand("flaky", ImmutableSet.of(), ImmutableSet.of(), Duration.ZERO) {
+            @Override
+            public Mono<IWorkflowContext> run(final IWorkflowContext context) {
+                return attempts.incrementAndGet() < 3
+                        ? Mono.error(new DataAccessResourceFailureException("unreachable"))
+                        : super.run(context);
+            }
+        };
+
+        StepVerifier.create(new TestFactory(flaky).createWorkflow(new BuildSlidesWorkflowContext()))
+                .assertNext(context -> assertThat(context.getStatus(), is(WorkflowStatus.COMPLETED)))
+                .verifyComplete();
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    public void givenPermanentFailureThenFailWithoutRetry() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final AtomicInteger attempts = new AtomicInteger();
+        final TestCommand broken = new TestCommand("broken", ImmutableSet.of(), ImmutableSet.of(), Duration.ZERO) {
+            @Override
+            public Mono<IWorkflowContext> run(final IWorkflowContext context) {
+                attempts.incrementAndGet();
+                return Mono.error(new IllegalStateException());
+            }
+        };
+
+        StepVerifier.create(new TestFactory(broken).createWorkflow(new BuildSlidesWorkflowContext()))
+                .verifyError(IllegalStateException.class);
+        assertThat(attempts.get(), is(1));
+    }
+
+    @Test
+    public void givenStepTimesOutThenCompensateAndPersistFailure() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final TestCommand first = new TestCommand("first", ImmutableSet.of(), ImmutableSet.of("a"), Duration.ZERO);
+        final TestCommand stuck = new TestCommand("stuck", ImmutableSet.of("a"), ImmutableSet.of(), Duration.ofMinutes(1));
+        final BuildSlidesWorkflowContext context = new BuildSlidesWorkflowContext();
+
+        StepVerifier.create(new TestFactory(first, stuck).createWorkflow(context))
+                .verifyError(WorkflowStepTimeoutException.class);
+
+        assertThat(context.getStatus(), is(WorkflowStatus.FAILED));
+        assertThat(events, contains("start:first", "end:first", "start:stuck", "compensate:first"));
+        // running, first stage, failed
+        verify(workflowStateRepository, times(3)).save(anyString(), any());
+    }
+
+    @Test
+    public void givenCompletedStepsThenResumeFromOutstandingSteps() {
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+        final TestCommand first = new TestCommand("first", ImmutableSet.of(), ImmutableSet.of("a"), Duration.ZERO);
+        final TestCommand last = new TestCommand("last", ImmutableSet.of("a"), ImmutableSet.of(), Duration.ZERO);
+        final BuildSlidesWorkflowContext context = new BuildSlidesWorkflowContext();
+        context.setCompletedSteps(ImmutableSet.of("first"));
+
+        StepVerifier.create(new TestFactory(first, last).createWorkflow(context))
+                .assertNext(ctx -> assertThat(ctx.getCompletedSteps(), contains("first", "last")))
+                .verifyComplete();
+        assertThat(events, contains("start:last", "end:last"));
+    }
+
+    private class TestFactory extends WorkflowFactorySupport<BuildSlidesWorkflowContext> {
+
+        private final List<ICommand<? super BuildSlidesWorkflowContext>> commands;
+
+        TestFactory(final TestCommand... commands) {
+            super(BuildSlidesWorkflowContext.class, workflowStateRepository, new WorkflowEventBroadcaster(Duration.ofMinutes(1)),
+                    new WorkflowMetrics(meterRegistry),
+                    new WorkflowStepPolicies(ImmutableMap.of(), new WorkflowModuleConfig.StepPolicy(200L, 2, 1L, 5L, null)));
+            this.commands = ImmutableList.copyOf(commands);
+        }
+
+        @Override
+        protected Mono<BuildSlidesWorkflowContext> defineWorkflow(final BuildSlidesWorkflowContext context) {
+            return runSteps(context, commands);
+        }
+
+    }
+
+    private class TestCommand implements ICommand<IWorkflowContext> {
+
+        private final String name;
+        private final Set<String> requires;
+        private final Set<String> provides;
+        private final Duration delay;
+
+        TestCommand(final String name, final Set<String> requires, final Set<String> provides, final Duration delay) {
+            this.name = name;
+            this.requires = requires;
+            this.provides = provides;
+            this.delay = delay;
+        }
+
+        @Override
+        public Mono<IWorkflowContext> run(final IWorkflowContext context) {
+            return Mono.fromRunnable(() -> events.add("start:" + name))
+                    .then(Mono.delay(delay))
+                    .doOnNext(x -> events.add("end:" + name))
+                    .thenReturn(context);
+        }
+
+        @Override
+        public String stepName() {
+            return name;
+        }
+
+        @Override
+        public Mono<Void> compensate(final IWorkflowContext context) {
+            return Mono.fromRunnable(() -> events.add("compensate:" + name));
+        }
+
+        @Override
+        public Set<String> requires() {
+            return requires;
+        }
+
+        @Override
+        public Set<String> provides() {
+            return provides;
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class WorkflowMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final WorkflowMetrics workflowMetrics = new WorkflowMetrics(meterRegistry);
+
+    @Test
+    public void givenStepThenTimeByWorkflowCommandAndOutcome() {
+        final ICommand<IWorkflowContext> command = Mono::just;
+
+        StepVerifier.create(workflowMetrics.timeStep("build-slides", command, Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+        StepVerifier.create(workflowMetrics.timeStep("build-slides", command, Mono.error(new IllegalStateException())))
+                .verifyError(IllegalStateException.class);
+
+        final String commandName = command.getClass().getSimpleName();
+        assertThat(meterRegistry.get("workflow.step").tags("workflow", "build-slides", "command", commandName)
+                .tag("outcome", "success").timer().count(), is(1L));
+        assertThat(meterRegistry.get("workflow.step").tags("workflow", "build-slides", "command", commandName)
+                .tag("outcome", "error").timer().count(), is(1L));
+    }
+
+    @Test
+    public void givenStatusChangesThenGaugeWorkflowsInFlight() {
+        final String first = new BuildSlidesWorkflowContext().getClaimTicket();
+        final String second = new BuildSlidesWorkflowContext().getClaimTicket();
+
+        workflowMetrics.statusChanged(first, WorkflowStatus.INITIALIZED);
+        workflowMetrics.statusChanged(second, WorkflowStatus.INITIALIZED);
+        workflowMetrics.statusChanged(first, WorkflowStatus.RUNNING);
+        assertThat(gauge(WorkflowStatus.INITIALIZED), is(1.0));
+        assertThat(gauge(WorkflowStatus.RUNNING), is(1.0));
+
+        workflowMetrics.statusChanged(first, WorkflowStatus.COMPLETED);
+        workflowMetrics.statusChanged(second, WorkflowStatus.REMOVED);
+        assertThat(gauge(WorkflowStatus.INITIALIZED), is(0.0));
+        assertThat(gauge(WorkflowStatus.RUNNING), is(0.0));
+    }
+
+    @Test
+    public void givenCancelledRunThenStopTrackingWorkflow() {
+        final String claimTicket = new BuildSlidesWorkflowContext().getClaimTicket();
+        workflowMetrics.statusChanged(claimTicket, WorkflowStatus.RUNNING);
+
+        StepVerifier.create(workflowMetrics.timeWorkflow("build-slides", claimTicket, Mono.never()))
+                .thenCancel()
+                .verify();
+
+        assertThat(gauge(WorkflowStatus.RUNNING), is(0.0));
+        assertThat(meterRegistry.get("workflow.run").tag("outcome", "cancelled").timer().count(), is(1L));
+    }
+
+    private double gauge(final WorkflowStatus status) {
+        return meterRegistry.get("workflow.active").tag("status", status.name()).gauge().value();
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.ClaimTicket;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WorkflowRecoveryScannerTest {
+
+    @Mock
+    private IWorkflowStateRepository workflowStateRepository;
+
+    @Mock
+    private IWorkflowService workflowService;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2020-03-01T12:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    public void givenInterruptedWorkflowThenResume() {
+        final BuildSlidesWorkflowContext context = interruptedContext();
+        when(workflowService.submitWorkflow(context)).thenReturn(Mono.just(ClaimTicket.builder()
+                .claimTicket(context.getClaimTicket())
+                .status(WorkflowStatus.INITIALIZED)
+                .build()));
+
+        StepVerifier.create(scanner(WorkflowModuleConfig.Recovery.RESUME).recover())
+                .expectNext(1L)
+                .verifyComplete();
+        verify(workflowStateRepository, never()).save(any(), any());
+    }
+
+    @Test
+    public void givenRejectedResumeThenFail() {
+        final BuildSlidesWorkflowContext context = interruptedContext();
+        when(workflowService.submitWorkflow(context))
+                .thenReturn(Mono.error(new WorkflowRejectedException(context.getWorkflowName(), 5)));
+        when(workflowStateRepository.save(eq(context.getClaimTicket()), eq(context))).thenReturn(Mono.empty());
+
+        StepVerifier.create(scanner(WorkflowModuleConfig.Recovery.RESUME).recover())
+                .expectNext(1L)
+                .verifyComplete();
+        assertThat(context.getStatus(), is(WorkflowStatus.FAILED));
+    }
+
+    @Test
+    public void givenFailRecoveryThenFail() {
+        final BuildSlidesWorkflowContext context = interruptedContext();
+        when(workflowStateRepository.save(eq(context.getClaimTicket()), eq(context))).thenReturn(Mono.empty());
+
+        StepVerifier.create(scanner(WorkflowModuleConfig.Recovery.FAIL).recover())
+                .expectNext(1L)
+                .verifyComplete();
+        assertThat(context.getStatus(), is(WorkflowStatus.FAILED));
+        verify(workflowService, never()).submitWorkflow(any());
+    }
+
+    @Test
+    public void givenNoRecoveryThenOnlyRenewLeases() {
+        when(workflowStateRepository.renewLeases(anySet())).thenReturn(Mono.empty());
+
+        StepVerifier.create(scanner(WorkflowModuleConfig.Recovery.NONE).recover())
+                .expectNext(0L)
+                .verifyComplete();
+        verify(workflowStateRepository).renewLeases(anySet());
+        verify(workflowStateRepository, never()).claimStale(anySet(), any());
+    }
+
+    @Test
+    public void givenLeaseTtlThenClaimOnlyWorkflowsStaleForLonger() {
+        when(workflowStateRepository.renewLeases(anySet())).thenReturn(Mono.empty());
+        when(workflowStateRepository.claimStale(anySet(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(scanner(WorkflowModuleConfig.Recovery.RESUME).recover())
+                .expectNext(0L)
+                .verifyComplete();
+        verify(workflowStateRepository).claimStale(anySet(), eq(Instant.parse("2020-03-01T11:55:00Z")));
+    }
+
+    private BuildSlidesWorkflowContext interruptedContext() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        when(workflowStateRepository.renewLeases(anySet())).thenReturn(Mono.empty());
+        when(workflowStateRepository.claimStale(anySet(), any())).thenReturn(Flux.just(context.getClaimTicket()));
+        when(workflowStateRepository.find(context.getClaimTicket(), IWorkflowContext.class))
+                .thenReturn(Mono.just(context));
+        return context;
+    }
+
+    private WorkflowRecoveryScanner scanner(final WorkflowModuleConfig.Recovery recovery) {
+        return new WorkflowRecoveryScanner(
+                workflowStateRepository,
+                workflowService,
+                recovery,
+                new WorkflowModuleConfig.Lease(300L, null),
+                clock
+        );
+    }
+
+}
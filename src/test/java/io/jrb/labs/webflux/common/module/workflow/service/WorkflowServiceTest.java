@@ -0,0 +1,177 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WorkflowServiceTest {
+
+    @Mock
+    private IWorkflowStateRepository workflowStateRepository;
+
+    @Mock
+    private IWorkflowFactory<BuildSlidesWorkflowContext> workflowFactory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WorkflowService workflowService;
+
+    @BeforeEach
+    public void init() {
+        workflowService = new WorkflowService(ImmutableMap.of(), ImmutableMap.of(), workflowStateRepository, Schedulers.immediate(),
+                new WorkflowEventBroadcaster(Duration.ofMinutes(1)), admissionController(), new WorkflowMetrics(meterRegistry));
+    }
+
+    @Test
+    public void givenKnownClaimTicketThenReturnStatus() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .build();
+        when(workflowStateRepository.findMetadata(eq(context.getClaimTicket()), eq(IWorkflowContext.class)))
+                .thenReturn(Mono.just(context));
+
+        StepVerifier.create(workflowService.getWorkflowStatus(context.getClaimTicket()))
+                .assertNext(claimTicket -> {
+                    assertThat(claimTicket.getClaimTicket(), is(context.getClaimTicket()));
+                    assertThat(claimTicket.getStatus(), is(WorkflowStatus.COMPLETED));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenUnknownClaimTicketThenThrowError() {
+        when(workflowStateRepository.findMetadata(eq("unknown"), eq(IWorkflowContext.class))).thenReturn(Mono.empty());
+
+        StepVerifier.create(workflowService.getWorkflowStatus("unknown"))
+                .expectError(UnknownClaimTicketException.class)
+                .verify();
+    }
+
+    @Test
+    public void givenMismatchedWorkflowThenDoNotDelete() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder().build();
+        when(workflowStateRepository.findMetadata(eq(context.getClaimTicket()), eq(IWorkflowContext.class)))
+                .thenReturn(Mono.just(context));
+
+        StepVerifier.create(workflowService.deleteWorkflowContext("other-workflow", context.getClaimTicket()))
+                .expectError(MismatchedClaimTicketException.class)
+                .verify();
+        verify(workflowStateRepository, never()).delete(context.getClaimTicket());
+    }
+
+    @Test
+    public void givenSubmittedWorkflowThenRunDetached() {
+        final WorkflowService service = new WorkflowService(
+                ImmutableMap.of("buildSlidesWorkflowFactory", workflowFactory),
+                ImmutableMap.of(),
+                workflowStateRepository,
+                Schedulers.immediate(),
+                new WorkflowEventBroadcaster(Duration.ofMinutes(1)),
+                admissionController(),
+                new WorkflowMetrics(meterRegistry)
+        );
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder().build();
+        when(workflowStateRepository.save(eq(context.getClaimTicket()), any())).thenReturn(Mono.empty());
+        when(workflowFactory.createWorkflow(context)).thenReturn(Mono.just(context));
+
+        StepVerifier.create(service.submitWorkflow(context))
+                .assertNext(claimTicket -> {
+                    assertThat(claimTicket.getClaimTicket(), is(context.getClaimTicket()));
+                    assertThat(claimTicket.getStatus(), is(WorkflowStatus.INITIALIZED));
+                })
+                .verifyComplete();
+        assertThat(context.isDetached(), is(true));
+        verify(workflowFactory).createWorkflow(context);
+        assertThat(meterRegistry.get("workflow.run").tag("outcome", "success").timer().count(), is(1L));
+    }
+
+    @Test
+    public void givenDetachedWorkflowFailedThenLeaveFailedSaveToFactory() {
+        final WorkflowService service = new WorkflowService(
+                ImmutableMap.of("buildSlidesWorkflowFactory", workflowFactory),
+                ImmutableMap.of(),
+                workflowStateRepository,
+                Schedulers.immediate(),
+                new WorkflowEventBroadcaster(Duration.ofMinutes(1)),
+                admissionController(),
+                new WorkflowMetrics(meterRegistry)
+        );
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder().build();
+        when(workflowStateRepository.save(eq(context.getClaimTicket()), any())).thenReturn(Mono.empty());
+        when(workflowFactory.createWorkflow(context)).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(service.submitWorkflow(context))
+                .expectNextCount(1)
+                .verifyComplete();
+        // only the initial save: the factory saves the failure itself
+        verify(workflowStateRepository, times(1)).save(eq(context.getClaimTicket()), any());
+        assertThat(meterRegistry.get("workflow.admission.running").gauge().value(), is(0.0));
+    }
+
+    @Test
+    public void givenSubmissionCancelledBeforeHandOffThenReleaseAdmission() {
+        final WorkflowService service = new WorkflowService(
+                ImmutableMap.of("buildSlidesWorkflowFactory", workflowFactory),
+                ImmutableMap.of(),
+                workflowStateRepository,
+                Schedulers.immediate(),
+                new WorkflowEventBroadcaster(Duration.ofMinutes(1)),
+                admissionController(),
+                new WorkflowMetrics(meterRegistry)
+        );
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder().build();
+        when(workflowStateRepository.save(eq(context.getClaimTicket()), any())).thenReturn(Mono.never());
+
+        final Disposable submission = service.submitWorkflow(context).subscribe();
+        assertThat(meterRegistry.get("workflow.admission.running").gauge().value(), is(1.0));
+
+        submission.dispose();
+        assertThat(meterRegistry.get("workflow.admission.running").gauge().value(), is(0.0));
+        verify(workflowFactory, never()).createWorkflow(any());
+    }
+
+    @Test
+    public void givenRunningWorkflowThenResultIsNotAvailable() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        when(workflowStateRepository.find(eq(context.getClaimTicket()), eq(IWorkflowContext.class)))
+                .thenReturn(Mono.just(context));
+
+        StepVerifier.create(workflowService.getWorkflowResult(context.getWorkflowName(), context.getClaimTicket()))
+                .expectError(IncompleteWorkflowException.class)
+                .verify();
+    }
+
+    private WorkflowAdmissionController admissionController() {
+        return new WorkflowAdmissionController(
+                ImmutableMap.of(),
+                new WorkflowModuleConfig.Admission(null, null, null),
+                meterRegistry
+        );
+    }
+
+}
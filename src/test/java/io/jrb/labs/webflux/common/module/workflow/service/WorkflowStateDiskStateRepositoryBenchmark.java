@@ -0,0 +1,145 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Compares the disk state store with the former flat layout, where every state file sits in one directory, at
+ * 10^5 and 10^6 claim tickets: the time to save each ticket, then to look up a random sample of them. Both layouts
+ * encode every state and write it atomically without fsync, so only the layout differs. Also compares the cost of
+ * each fsync policy on save. Needs a few GB of free disk space; run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class WorkflowStateDiskStateRepositoryBenchmark {
+
+    private static final int[] TICKET_COUNTS = { 100_000, 1_000_000 };
+    private static final int LOOKUPS = 10_000;
+    private static final int FSYNC_SAVES = 1_000;
+
+    private final IWorkflowContextCodec codec = new SmileWorkflowContextCodec();
+    private final Random random = new Random(42);
+
+    @TempDir
+    Path baseDirectory;
+
+    @Test
+    public void compareLayouts() throws IOException {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .setListName("Easter")
+                .build();
+
+        System.out.printf("%-10s %10s %14s %14s%n", "layout", "tickets", "save (us/op)", "lookup (us/op)");
+        for (final int ticketCount : TICKET_COUNTS) {
+            final List<String> keys = keys(ticketCount);
+
+            final Path flatDirectory = Files.createDirectory(baseDirectory.resolve("flat-" + ticketCount));
+            final long flatSave = time(() -> keys.forEach(key ->
+                    write(flatDirectory.resolve(key + "_state.raw"), codec.encode(context))));
+            final long flatLookup = time(() -> sample(keys).forEach(key ->
+                    assertThat(codec.decode(read(flatDirectory.resolve(key + "_state.raw")), IWorkflowContext.class),
+                            notNullValue())));
+            print("flat", ticketCount, flatSave, flatLookup);
+            deleteRecursively(flatDirectory);
+
+            final Path shardedDirectory = Files.createDirectory(baseDirectory.resolve("sharded-" + ticketCount));
+            final WorkflowStateDiskStateRepository repository = repository(shardedDirectory, WorkflowModuleConfig.Fsync.NONE);
+            final long shardedSave = time(() -> keys.forEach(key -> repository.save(key, context).block()));
+            final long shardedLookup = time(() -> sample(keys).forEach(key ->
+                    assertThat(repository.find(key, IWorkflowContext.class).block(), notNullValue())));
+            print("sharded", ticketCount, shardedSave, shardedLookup);
+            deleteRecursively(shardedDirectory);
+        }
+    }
+
+    @Test
+    public void compareFsyncPolicies() throws IOException {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+
+        System.out.printf("%-10s %14s%n", "fsync", "save (us/op)");
+        for (final WorkflowModuleConfig.Fsync fsync : WorkflowModuleConfig.Fsync.values()) {
+            final Path directory = Files.createDirectory(baseDirectory.resolve("fsync-" + fsync));
+            final WorkflowStateDiskStateRepository repository = repository(directory, fsync);
+            final List<String> keys = keys(FSYNC_SAVES);
+            final long nanos = time(() -> keys.forEach(key -> repository.save(key, context).block()));
+            System.out.printf("%-10s %14d%n", fsync, TimeUnit.NANOSECONDS.toMicros(nanos / FSYNC_SAVES));
+            deleteRecursively(directory);
+        }
+    }
+
+    private WorkflowStateDiskStateRepository repository(final Path directory, final WorkflowModuleConfig.Fsync fsync) {
+        return new WorkflowStateDiskStateRepository(directory.toString(), codec, fsync, Schedulers.immediate());
+    }
+
+    private List<String> keys(final int count) {
+        final List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    private List<String> sample(final List<String> keys) {
+        final List<String> sample = new ArrayList<>(LOOKUPS);
+        for (int i = 0; i < LOOKUPS; i++) {
+            sample.add(keys.get(random.nextInt(keys.size())));
+        }
+        return sample;
+    }
+
+    private static void print(final String layout, final int ticketCount, final long saveNanos, final long lookupNanos) {
+        System.out.printf("%-10s %10d %14d %14d%n", layout, ticketCount,
+                TimeUnit.NANOSECONDS.toMicros(saveNanos / ticketCount), TimeUnit.NANOSECONDS.toMicros(lookupNanos / LOOKUPS));
+    }
+
+    private static long time(final Runnable runnable) {
+        final long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static byte[] read(final Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(final Path file, final byte[] content) {
+        try {
+            WorkflowFileUtils.writeAtomically(file, content, WorkflowModuleConfig.Fsync.NONE);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteRecursively(final Path directory) throws IOException {
+        try (final Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class WorkflowStateDiskStateRepositoryTest {
+
+    private final IWorkflowContextCodec codec = new JavaWorkflowContextCodec();
+
+    @TempDir
+    Path baseDirectory;
+
+    @Test
+    public void givenSavedStateThenStoreInShardAndFind() throws Exception {
+        final WorkflowStateDiskStateRepository repository = repository();
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .setListName("Easter")
+                .build();
+
+        StepVerifier.create(repository.save(context.getClaimTicket(), context)).verifyComplete();
+
+        final List<Path> files = listFiles();
+        assertThat(files.size(), is(1));
+        assertThat(baseDirectory.relativize(files.get(0)).getNameCount(), is(4));
+        assertThat(files.get(0).toString(), endsWith(context.getClaimTicket() + "_state.raw"));
+        StepVerifier.create(repository.find(context.getClaimTicket(), BuildSlidesWorkflowContext.class))
+                .assertNext(found -> assertThat(found.getSetListName(), is("Easter")))
+                .verifyComplete();
+        StepVerifier.create(repository.findKeysByStatus(ImmutableSet.of(WorkflowStatus.COMPLETED)))
+                .expectNext(context.getClaimTicket())
+                .verifyComplete();
+
+        StepVerifier.create(repository.delete(context.getClaimTicket())).verifyComplete();
+        assertThat(listFiles().isEmpty(), is(true));
+    }
+
+    @Test
+    public void givenLegacyStateThenFindAndMoveOnSave() throws Exception {
+        final WorkflowStateDiskStateRepository repository = repository();
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final Path legacyFile = baseDirectory.resolve(context.getClaimTicket() + "_state.raw");
+        Files.write(legacyFile, codec.encode(context));
+
+        StepVerifier.create(repository.findKeysByStatus(ImmutableSet.of(WorkflowStatus.RUNNING)))
+                .expectNext(context.getClaimTicket())
+                .verifyComplete();
+        StepVerifier.create(repository.find(context.getClaimTicket(), BuildSlidesWorkflowContext.class))
+                .assertNext(found -> assertThat(found.getStatus(), is(WorkflowStatus.RUNNING)))
+                .verifyComplete();
+
+        context.setStatus(WorkflowStatus.COMPLETED);
+        StepVerifier.create(repository.save(context.getClaimTicket(), context)).verifyComplete();
+
+        assertThat(Files.exists(legacyFile), is(false));
+        assertThat(listFiles().size(), is(1));
+        StepVerifier.create(repository.findKeysByStatus(ImmutableSet.of(WorkflowStatus.COMPLETED)))
+                .expectNext(context.getClaimTicket())
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenCorruptStateThenTreatAsMissing() throws Exception {
+        final WorkflowStateDiskStateRepository repository = repository();
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder().build();
+        StepVerifier.create(repository.save(context.getClaimTicket(), context)).verifyComplete();
+        Files.write(listFiles().get(0), new byte[] { 1, 2, 3 });
+
+        StepVerifier.create(repository.find(context.getClaimTicket(), BuildSlidesWorkflowContext.class))
+                .verifyComplete();
+        assertThat(listFiles().stream().map(Path::getFileName).map(Path::toString).collect(Collectors.toList()),
+                contains(context.getClaimTicket() + "_state.raw"));
+    }
+
+    @Test
+    public void givenRecentStateThenSkipWithoutDecoding() throws Exception {
+        final IWorkflowContextCodec countingCodec = spy(codec);
+        final WorkflowStateDiskStateRepository repository = repository(countingCodec);
+        final BuildSlidesWorkflowContext old = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .build();
+        final BuildSlidesWorkflowContext recent = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .build();
+        StepVerifier.create(repository.save(old.getClaimTicket(), old)
+                .then(repository.save(recent.getClaimTicket(), recent)))
+                .verifyComplete();
+        final Instant now = Instant.now();
+        for (final Path file : listFiles()) {
+            if (file.getFileName().toString().startsWith(old.getClaimTicket())) {
+                Files.setLastModifiedTime(file, FileTime.from(now.minus(Duration.ofHours(2))));
+            }
+        }
+
+        StepVerifier.create(repository.findSummariesUpdatedBefore(
+                ImmutableSet.of(WorkflowStatus.COMPLETED), now.minus(Duration.ofHours(1))))
+                .assertNext(summary -> assertThat(summary.getClaimTicket(), is(old.getClaimTicket())))
+                .verifyComplete();
+        verify(countingCodec, times(1)).decode(any(), any());
+        StepVerifier.create(repository.count()).expectNext(2L).verifyComplete();
+    }
+
+    private WorkflowStateDiskStateRepository repository() {
+        return repository(codec);
+    }
+
+    private WorkflowStateDiskStateRepository repository(final IWorkflowContextCodec codec) {
+        return new WorkflowStateDiskStateRepository(
+                baseDirectory.toString(),
+                codec,
+                WorkflowModuleConfig.Fsync.FILE,
+                Schedulers.immediate()
+        );
+    }
+
+    private List<Path> listFiles() throws Exception {
+        try (final Stream<Path> paths = Files.walk(baseDirectory)) {
+            return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableSet;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateDocument;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.Collection;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WorkflowStateMongoStateRepositoryTest {
+
+    private static final String COLLECTION = "workflowState";
+    private static final String INSTANCE_ID = "instance-1";
+
+    @Mock
+    private ReactiveMongoTemplate mongoTemplate;
+
+    private final IWorkflowContextCodec codec = new SmileWorkflowContextCodec();
+
+    private WorkflowStateMongoStateRepository repository;
+
+    @BeforeEach
+    public void init() {
+        repository = new WorkflowStateMongoStateRepository(mongoTemplate, COLLECTION, codec, INSTANCE_ID);
+    }
+
+    @Test
+    public void givenSavedStateThenFindRoundTrips() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .setListName("Easter")
+                .build();
+        final String key = context.getClaimTicket();
+        when(mongoTemplate.save(any(WorkflowStateDocument.class), eq(COLLECTION)))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+
+        final ArgumentCaptor<WorkflowStateDocument> saved = ArgumentCaptor.forClass(WorkflowStateDocument.class);
+        verify(mongoTemplate).save(saved.capture(), eq(COLLECTION));
+        assertThat(saved.getValue().getId(), is(key));
+        assertThat(saved.getValue().getStatus(), is(WorkflowStatus.RUNNING));
+        assertThat(saved.getValue().getOwner(), is(INSTANCE_ID));
+        assertThat(saved.getValue().getHeartbeatOn(), is(notNullValue()));
+
+        when(mongoTemplate.findById(key, WorkflowStateDocument.class, COLLECTION))
+                .thenReturn(Mono.just(saved.getValue()));
+        StepVerifier.create(repository.find(key, BuildSlidesWorkflowContext.class))
+                .assertNext(found -> assertThat(found.getSetListName(), is("Easter")))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenMissingStateThenFindNothing() {
+        when(mongoTemplate.findById("missing", WorkflowStateDocument.class, COLLECTION)).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.find("missing", IWorkflowContext.class)).verifyComplete();
+    }
+
+    @Test
+    public void givenStoreFailureThenFindFails() {
+        when(mongoTemplate.findById("ticket", WorkflowStateDocument.class, COLLECTION))
+                .thenReturn(Mono.error(new DataAccessResourceFailureException("down")));
+
+        StepVerifier.create(repository.find("ticket", IWorkflowContext.class))
+                .verifyError(DataAccessResourceFailureException.class);
+    }
+
+    @Test
+    public void givenStatusesThenFindSummariesByStatus() {
+        final Instant updatedOn = Instant.parse("2020-03-01T12:00:00Z");
+        when(mongoTemplate.find(any(Query.class), eq(WorkflowStateDocument.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(WorkflowStateDocument.builder()
+                        .id("ticket")
+                        .workflowName("buildSlides")
+                        .status(WorkflowStatus.COMPLETED)
+                        .updatedOn(updatedOn)
+                        .build()));
+
+        StepVerifier.create(repository.findSummariesByStatus(ImmutableSet.of(WorkflowStatus.COMPLETED)))
+                .assertNext(summary -> {
+                    assertThat(summary.getClaimTicket(), is("ticket"));
+                    assertThat(summary.getWorkflowName(), is("buildSlides"));
+                    assertThat(summary.getStatus(), is(WorkflowStatus.COMPLETED));
+                    assertThat(summary.getUpdatedOn(), is(updatedOn));
+                })
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(WorkflowStateDocument.class), eq(COLLECTION));
+        final Document status = query.getValue().getQueryObject().get("status", Document.class);
+        assertThat((Collection<?>) status.get("$in"), contains((Object) WorkflowStatus.COMPLETED));
+        assertThat(query.getValue().getFieldsObject().keySet(),
+                containsInAnyOrder("_id", "workflowName", "status", "updatedOn"));
+    }
+
+    @Test
+    public void givenSavedStateThenDeleteById() {
+        when(mongoTemplate.remove(any(Query.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(DeleteResult.acknowledged(1)));
+
+        StepVerifier.create(repository.delete("ticket")).verifyComplete();
+
+        final ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(COLLECTION));
+        assertThat(query.getValue().getQueryObject().get("_id"), is("ticket"));
+    }
+
+    @Test
+    public void givenStaleStatesThenClaimOnlyThoseStillUnchanged() {
+        final Instant heartbeatOn = Instant.parse("2020-03-01T12:00:00Z");
+        when(mongoTemplate.find(any(Query.class), eq(WorkflowStateDocument.class), eq(COLLECTION)))
+                .thenReturn(Flux.just(
+                        WorkflowStateDocument.builder().id("claimed").heartbeatOn(heartbeatOn).build(),
+                        WorkflowStateDocument.builder().id("taken").heartbeatOn(heartbeatOn).build()
+                ));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(COLLECTION)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)))
+                .thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, null)));
+
+        StepVerifier.create(repository.claimStale(ImmutableSet.of(WorkflowStatus.RUNNING), Instant.now()))
+                .expectNext("claimed")
+                .verifyComplete();
+
+        final ArgumentCaptor<Query> unchanged = ArgumentCaptor.forClass(Query.class);
+        final ArgumentCaptor<Update> claimed = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateFirst(unchanged.capture(), claimed.capture(), eq(COLLECTION));
+        assertThat(unchanged.getAllValues().get(0).getQueryObject().get("heartbeatOn"), is(heartbeatOn));
+        assertThat(claimed.getAllValues().get(0).getUpdateObject().get("$set", Document.class).get("owner"),
+                is(INSTANCE_ID));
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStateSummary;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WorkflowStateSweeperTest {
+
+    private static final Instant NOW = Instant.parse("2020-03-01T12:00:00Z");
+
+    @Mock
+    private IWorkflowStateRepository workflowStateRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void givenExpiredStateThenTombstoneOrDelete() {
+        final BuildSlidesWorkflowContext completed = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .content(new byte[] { 1, 2, 3 })
+                .build();
+        when(workflowStateRepository.findSummariesUpdatedBefore(anySet(), eq(NOW.minusSeconds(3600))))
+                .thenReturn(Flux.just(
+                        summary(completed.getClaimTicket(), WorkflowStatus.COMPLETED, 7200),
+                        summary("tombstone", WorkflowStatus.REMOVED, 7200)
+                ));
+        when(workflowStateRepository.count()).thenReturn(Mono.just(3L));
+        when(workflowStateRepository.deleteAll(ImmutableList.of("tombstone"))).thenReturn(Mono.empty());
+        when(workflowStateRepository.findMetadata(completed.getClaimTicket(), IWorkflowContext.class))
+                .thenReturn(Mono.just(completed));
+        when(workflowStateRepository.deletePayload(completed.getClaimTicket())).thenReturn(Mono.empty());
+        final ArgumentCaptor<IWorkflowContext> tombstone = ArgumentCaptor.forClass(IWorkflowContext.class);
+        when(workflowStateRepository.save(eq(completed.getClaimTicket()), tombstone.capture())).thenReturn(Mono.empty());
+
+        StepVerifier.create(sweeper().sweep()).verifyComplete();
+
+        assertThat(tombstone.getValue().getStatus(), is(WorkflowStatus.REMOVED));
+        assertThat(((BuildSlidesWorkflowContext) tombstone.getValue()).getContent(), is(nullValue()));
+        final InOrder order = inOrder(workflowStateRepository);
+        order.verify(workflowStateRepository).save(eq(completed.getClaimTicket()), any());
+        order.verify(workflowStateRepository).deletePayload(completed.getClaimTicket());
+        verify(workflowStateRepository, never()).delete(anyString());
+        verify(workflowStateRepository).deleteAll(ImmutableList.of("tombstone"));
+        assertThat(meterRegistry.get("workflow.state.size").gauge().value(), is(3.0));
+        assertThat(meterRegistry.get("workflow.sweep").timer().count(), is(1L));
+    }
+
+    private WorkflowStateSummary summary(final String claimTicket, final WorkflowStatus status, final long ageInSec) {
+        return WorkflowStateSummary.builder()
+                .claimTicket(claimTicket)
+                .workflowName("build-slides")
+                .status(status)
+                .updatedOn(NOW.minusSeconds(ageInSec))
+                .build();
+    }
+
+    private WorkflowStateSweeper sweeper() {
+        return new WorkflowStateSweeper(
+                workflowStateRepository,
+                ImmutableMap.of("build-slides", new WorkflowModuleConfig.Retention(3600L, 3600L)),
+                new WorkflowModuleConfig.Retention(null, null),
+                new WorkflowModuleConfig.Sweeper(false, null, 2),
+                meterRegistry,
+                Clock.fixed(NOW, ZoneOffset.UTC)
+        );
+    }
+
+}
@@ -0,0 +1,205 @@
+package io.jrb.labs.webflux.common.module.workflow.service;
+
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindWorkflowStateRepositoryTest {
+
+    @Mock
+    private IWorkflowStateRepository delegate;
+
+    private WriteBehindWorkflowStateRepository repository;
+
+    @BeforeEach
+    public void init() {
+        lenient().when(delegate.save(anyString(), any())).thenReturn(Mono.empty());
+        repository = new WriteBehindWorkflowStateRepository(
+                delegate,
+                new SmileWorkflowContextCodec(),
+                Duration.ofHours(1)
+        );
+    }
+
+    @AfterEach
+    public void cleanup() {
+        repository.close();
+    }
+
+    @Test
+    public void givenInFlightSavesThenCoalesceUntilFlush() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+
+        StepVerifier.create(repository.save(key, context)
+                .then(repository.save(key, context))
+                .then(repository.save(key, context)))
+                .verifyComplete();
+        verify(delegate, never()).save(anyString(), any());
+
+        StepVerifier.create(repository.find(key, IWorkflowContext.class))
+                .expectNext(context)
+                .verifyComplete();
+
+        StepVerifier.create(repository.flush()).verifyComplete();
+        verify(delegate, times(1)).save(eq(key), eq(context));
+    }
+
+    @Test
+    public void givenPendingSaveThenReadCopyWithSamePayload() {
+        final byte[] content = { 1, 2, 3 };
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .content(content)
+                .build();
+        final String key = context.getClaimTicket();
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+
+        StepVerifier.create(repository.find(key, BuildSlidesWorkflowContext.class))
+                .assertNext(found -> {
+                    assertThat(found, is(not(sameInstance(context))));
+                    assertThat(found.getContent(), is(sameInstance(content)));
+                    found.setStatus(WorkflowStatus.FAILED);
+                })
+                .verifyComplete();
+        StepVerifier.create(repository.findMetadata(key, IWorkflowContext.class))
+                .assertNext(found -> assertThat(found.getStatus(), is(WorkflowStatus.RUNNING)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenTerminalStatusThenWriteThrough() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+
+        StepVerifier.create(repository.save(key, context)
+                .then(Mono.defer(() -> repository.save(key, context.setStatus(WorkflowStatus.COMPLETED)))))
+                .verifyComplete();
+        verify(delegate, times(1)).save(eq(key), eq(context));
+
+        StepVerifier.create(repository.flush()).verifyComplete();
+        verify(delegate, times(1)).save(eq(key), eq(context));
+    }
+
+    @Test
+    public void givenContextChangedAfterSaveThenFlushWritesSavedSnapshot() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+        context.setCompletedSteps(Collections.singleton("find-set-list"));
+
+        StepVerifier.create(repository.flush()).verifyComplete();
+        final ArgumentCaptor<IWorkflowContext> saved = ArgumentCaptor.forClass(IWorkflowContext.class);
+        verify(delegate).save(eq(key), saved.capture());
+        assertThat(saved.getValue(), is(not(sameInstance(context))));
+        assertThat(saved.getValue().getCompletedSteps(), is(nullValue()));
+    }
+
+    @Test
+    public void givenFlushInFlightThenWriteThroughWaitsForIt() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+        final MonoProcessor<Void> flushWrite = MonoProcessor.create();
+        when(delegate.save(eq(key), any())).thenReturn(flushWrite).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+        final Disposable flush = repository.flush().subscribe();
+        final BuildSlidesWorkflowContext completed = context.toBuilder().status(WorkflowStatus.COMPLETED).build();
+        final Disposable writeThrough = repository.save(key, completed).subscribe();
+        verify(delegate, times(1)).save(eq(key), any());
+
+        flushWrite.onComplete();
+        final InOrder order = inOrder(delegate);
+        order.verify(delegate).save(eq(key), eq(context));
+        order.verify(delegate).save(eq(key), eq(completed));
+        assertThat(flush.isDisposed(), is(true));
+        assertThat(writeThrough.isDisposed(), is(true));
+    }
+
+    @Test
+    public void givenFlushInFlightThenDeleteWaitsForIt() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+        final MonoProcessor<Void> flushWrite = MonoProcessor.create();
+        when(delegate.save(eq(key), any())).thenReturn(flushWrite);
+        when(delegate.delete(key)).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+        repository.flush().subscribe();
+        repository.delete(key).subscribe();
+        verify(delegate, never()).delete(anyString());
+
+        flushWrite.onComplete();
+        final InOrder order = inOrder(delegate);
+        order.verify(delegate).save(eq(key), eq(context));
+        order.verify(delegate).delete(key);
+    }
+
+    @Test
+    public void givenSaveDuringFlushThenNewerSaveStaysPending() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        final String key = context.getClaimTicket();
+        final MonoProcessor<Void> flushWrite = MonoProcessor.create();
+        when(delegate.save(eq(key), any())).thenReturn(flushWrite).thenReturn(Mono.empty());
+
+        StepVerifier.create(repository.save(key, context)).verifyComplete();
+        repository.flush().subscribe();
+        final BuildSlidesWorkflowContext newer = context.toBuilder()
+                .completedSteps(Collections.singleton("find-set-list"))
+                .build();
+        StepVerifier.create(repository.save(key, newer)).verifyComplete();
+        flushWrite.onComplete();
+
+        StepVerifier.create(repository.find(key, IWorkflowContext.class))
+                .assertNext(found -> assertThat(found, is(equalTo(newer))))
+                .verifyComplete();
+        StepVerifier.create(repository.flush()).verifyComplete();
+        verify(delegate).save(eq(key), eq(newer));
+    }
+
+}
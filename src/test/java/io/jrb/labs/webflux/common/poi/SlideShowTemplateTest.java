@@ -0,0 +1,75 @@
+package io.jrb.labs.webflux.common.poi;
+
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlideLayout;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SlideShowTemplateTest {
+
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private SlideShowTemplate template;
+
+    @BeforeEach
+    public void init() throws Exception {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (final XMLSlideShow xss = new XMLSlideShow()) {
+            xss.write(content);
+        }
+        template = new SlideShowTemplate(new ByteArrayResource(content.toByteArray()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                reads.incrementAndGet();
+                return super.getInputStream();
+            }
+        });
+    }
+
+    @Test
+    public void givenSeveralSlideShowsThenReadTemplateOnce() throws Exception {
+        try (final XMLSlideShow first = template.open(); final XMLSlideShow second = template.open()) {
+            assertThat(first == second, is(false));
+        }
+
+        assertThat(reads.get(), is(1));
+    }
+
+    @Test
+    public void givenLayoutNameThenFindLayoutOfThatSlideShow() throws Exception {
+        try (final XMLSlideShow xss = template.open()) {
+            final XSLFSlideLayout layout = template.findLayout(xss, "blank");
+
+            assertThat(layout.getName(), is("Blank"));
+            assertThat(Arrays.asList(xss.getSlideMasters().get(0).getSlideLayouts()), hasItem(sameInstance(layout)));
+        }
+    }
+
+    @Test
+    public void givenUnknownLayoutThenFindNothing() throws Exception {
+        try (final XMLSlideShow xss = template.open()) {
+            assertThat(template.findLayout(xss, "missing"), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void givenNoMasterTemplateThenOpenEmptySlideShow() throws Exception {
+        try (final XMLSlideShow xss = new SlideShowTemplate(null).open()) {
+            assertThat(xss.getSlides().isEmpty(), is(true));
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package io.jrb.labs.webflux.common.webflux;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class BoundedSchedulersTest {
+
+    private MeterRegistry meterRegistry;
+    private Scheduler scheduler;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = BoundedSchedulers.create("test", new BoundedSchedulerConfig(1, 1, null), meterRegistry);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        scheduler.dispose();
+    }
+
+    @Test
+    public void givenSaturatedSchedulerThenRejectWork() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+        scheduler.schedule(() -> {});
+
+        StepVerifier.create(Mono.fromCallable(() -> "rendered").subscribeOn(scheduler))
+                .expectError(RejectedExecutionException.class)
+                .verify();
+
+        assertThat(meterRegistry.get("executor.active").tag("name", "test").gauge().value(), is(1.0));
+        assertThat(meterRegistry.get("executor.queued").tag("name", "test").gauge().value(), is(1.0));
+        assertThat(meterRegistry.get("scheduler.rejected").tag("name", "test").counter().count(), is(1.0));
+        release.countDown();
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.jrb.labs.webflux.common.webflux;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class FluxContentUtilsTest {
+
+    @Test
+    public void givenContentThenEmitChunksOnDemand() {
+        final AtomicInteger written = new AtomicInteger();
+        final Flux<DataBuffer> content = FluxContentUtils.streamContent(os -> {
+            try {
+                for (int i = 0; i < 10; i++) {
+                    os.write(new byte[1000]);
+                    written.addAndGet(1000);
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, Schedulers.boundedElastic(), new DefaultDataBufferFactory(), 4096);
+
+        StepVerifier.create(content, 1)
+                .assertNext(buffer -> assertThat(buffer.readableByteCount(), is(4096)))
+                .expectNoEvent(Duration.ofMillis(100))
+                .then(() -> assertThat(written.get(), lessThanOrEqualTo(9000)))
+                .thenRequest(Long.MAX_VALUE)
+                .assertNext(buffer -> assertThat(buffer.readableByteCount(), is(4096)))
+                .assertNext(buffer -> assertThat(buffer.readableByteCount(), is(1808)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenCancellationThenStopProducer() throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Flux<DataBuffer> content = FluxContentUtils.streamContent(os -> {
+            try {
+                while (true) {
+                    os.write(new byte[1024]);
+                }
+            } catch (final IOException e) {
+                failure.set(e);
+            } finally {
+                stopped.countDown();
+            }
+        }, Schedulers.boundedElastic(), new DefaultDataBufferFactory(), 1024);
+
+        StepVerifier.create(content, 2)
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        assertThat(stopped.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(failure.get(), is(instanceOf(IOException.class)));
+    }
+
+}
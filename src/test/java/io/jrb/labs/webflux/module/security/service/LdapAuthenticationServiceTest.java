@@ -0,0 +1,129 @@
+package io.jrb.labs.webflux.module.security.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.webflux.BoundedSchedulerConfig;
+import io.jrb.labs.webflux.module.security.LdapConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ldap.core.AttributesMapper;
+import org.springframework.ldap.core.ContextMapper;
+import org.springframework.ldap.core.LdapTemplate;
+import org.springframework.ldap.query.LdapQuery;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LdapAuthenticationServiceTest {
+
+    private static final String USERNAME = "jdoe";
+    private static final String PASSWORD = "secret";
+
+    @Mock
+    private LdapTemplate ldapTemplate;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private LdapAuthenticationService service;
+
+    @BeforeEach
+    public void init() {
+        final LdapConfig ldapConfig = new LdapConfig(
+                "dc=apps", "ou=groups", "ou=permissions", "ou=people",
+                ImmutableMap.of(), null, 1, new BoundedSchedulerConfig(2, 2, null), 1L
+        );
+        service = new LdapAuthenticationService(
+                ldapConfig, ldapTemplate, passwordEncoder, Schedulers.boundedElastic(), new SimpleMeterRegistry()
+        );
+        when(passwordEncoder.encode(PASSWORD)).thenReturn(PASSWORD);
+        lenient().when(ldapTemplate.search(anyString(), anyString(), anyContextMapper()))
+                .thenReturn(ImmutableList.of("uid=jdoe,ou=people"));
+    }
+
+    @Test
+    public void givenInvalidCredentialsThenReturnEmpty() {
+        when(ldapTemplate.authenticate(anyString(), anyString(), anyString())).thenReturn(false);
+
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .verifyComplete();
+
+        verify(ldapTemplate, never()).search(anyString(), anyString(), anyContextMapper());
+    }
+
+    @Test
+    public void givenCachedAuthoritiesThenOnlyBind() {
+        when(ldapTemplate.authenticate(anyString(), anyString(), anyString())).thenReturn(true);
+        when(ldapTemplate.search(any(LdapQuery.class), anyAttributesMapper())).thenReturn(ImmutableList.of());
+        when(ldapTemplate.search(anyString(), anyString(), anyAttributesMapper())).thenReturn(ImmutableList.of());
+
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .expectNextMatches(user -> user.getUsername().equals(USERNAME))
+                .verifyComplete();
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .expectNextMatches(user -> user.getUsername().equals(USERNAME))
+                .verifyComplete();
+
+        verify(ldapTemplate, times(2)).authenticate(anyString(), anyString(), anyString());
+        verify(ldapTemplate, times(1)).search(anyString(), anyString(), anyContextMapper());
+        verify(ldapTemplate, times(1)).search(any(LdapQuery.class), anyAttributesMapper());
+    }
+
+    @Test
+    public void givenSlowDirectoryThenTimeOutAndFreeLoginPermit() {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(ldapTemplate.authenticate(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return false;
+        });
+
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .expectError(AuthenticationUnavailableException.class)
+                .verify();
+        release.countDown();
+
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenTooManyConcurrentLoginsThenRejectLogin() {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(ldapTemplate.authenticate(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return false;
+        });
+
+        StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                .then(() -> StepVerifier.create(service.authenticate(USERNAME, PASSWORD))
+                        .expectError(AuthenticationUnavailableException.class)
+                        .verify())
+                .then(release::countDown)
+                .verifyComplete();
+    }
+
+    private static ContextMapper<String> anyContextMapper() {
+        return any();
+    }
+
+    private static AttributesMapper<String> anyAttributesMapper() {
+        return any();
+    }
+
+}
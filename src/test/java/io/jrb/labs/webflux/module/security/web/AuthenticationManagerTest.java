@@ -0,0 +1,83 @@
+package io.jrb.labs.webflux.module.security.web;
+
+import com.google.common.collect.ImmutableList;
+import io.jrb.labs.webflux.module.security.JwtConfig;
+import io.jrb.labs.webflux.module.security.model.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import reactor.test.StepVerifier;
+
+import java.util.Base64;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AuthenticationManagerTest {
+
+    private static final JwtConfig JWT_CONFIG = new JwtConfig(null, 300L, null);
+
+    private JwtTokenProvider jwtTokenProvider;
+    private AuthenticationManager authenticationManager;
+
+    @BeforeEach
+    public void init() {
+        jwtTokenProvider = spy(new JwtTokenProvider(JWT_CONFIG));
+        authenticationManager = new AuthenticationManager(jwtTokenProvider, 100, 300, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void givenValidTokenThenParseOnceAndReuseAuthentication() {
+        final String token = jwtTokenProvider.generateToken(new User(
+                "jdoe", "", true, ImmutableList.<GrantedAuthority>of(new SimpleGrantedAuthority("PERM_SONG_READ"))
+        ));
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                    .assertNext(auth -> {
+                        assertThat(auth.getPrincipal(), is("jdoe"));
+                        assertThat(auth.getAuthorities(), contains(new SimpleGrantedAuthority("PERM_SONG_READ")));
+                    })
+                    .verifyComplete();
+        }
+
+        verify(jwtTokenProvider, times(1)).getAllClaimsFromToken(anyString());
+    }
+
+    @Test
+    public void givenInvalidTokenThenReturnEmpty() {
+        StepVerifier.create(authenticationManager.authenticate(bearer("not-a-token")))
+                .verifyComplete();
+        StepVerifier.create(authenticationManager.authenticate(bearer("not-a-token")))
+                .verifyComplete();
+
+        verify(jwtTokenProvider, times(2)).getAllClaimsFromToken(anyString());
+    }
+
+    @Test
+    public void givenTokenWithoutAuthoritiesThenReturnEmpty() {
+        final String token = Jwts.builder()
+                .setSubject("jdoe")
+                .signWith(SignatureAlgorithm.HS512, Base64.getEncoder().encodeToString(JWT_CONFIG.secretBytes()))
+                .compact();
+
+        StepVerifier.create(authenticationManager.authenticate(bearer(token)))
+                .verifyComplete();
+    }
+
+    private static Authentication bearer(final String token) {
+        return new UsernamePasswordAuthenticationToken(token, token);
+    }
+
+}
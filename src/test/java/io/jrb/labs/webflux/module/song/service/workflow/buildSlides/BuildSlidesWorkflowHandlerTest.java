@@ -0,0 +1,211 @@
+package io.jrb.labs.webflux.module.song.service.workflow.buildSlides;
+
+import io.jrb.labs.webflux.common.module.workflow.model.ClaimTicket;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowService;
+import io.jrb.labs.webflux.common.module.workflow.service.SmileWorkflowContextCodec;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import static io.jrb.labs.webflux.common.poi.POIUtils.writeSlideShow;
+import static io.jrb.labs.webflux.common.webflux.FluxContentUtils.DEFAULT_CHUNK_SIZE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BuildSlidesWorkflowHandlerTest {
+
+    private static final String CLAIM_TICKET_HEADER = "x-claim-ticket-number";
+
+    private static final ServerResponse.Context RESPONSE_CONTEXT = new ServerResponse.Context() {
+
+        @Override
+        public List<HttpMessageWriter<?>> messageWriters() {
+            return HandlerStrategies.withDefaults().messageWriters();
+        }
+
+        @Override
+        public List<ViewResolver> viewResolvers() {
+            return Collections.emptyList();
+        }
+
+    };
+
+    @Mock
+    private IWorkflowService workflowService;
+
+    private BuildSlidesWorkflowHandler handler;
+    private XMLSlideShow slideShow;
+
+    @BeforeEach
+    public void init() {
+        handler = new BuildSlidesWorkflowHandler(workflowService, Schedulers.boundedElastic(), CLAIM_TICKET_HEADER);
+        slideShow = spy(new XMLSlideShow());
+        for (int i = 0; i < 20; i++) {
+            slideShow.createSlide();
+        }
+    }
+
+    @Test
+    public void givenStreamingContentThenStreamDeckAndCloseSlideShow() throws Exception {
+        givenWorkflowResult(streamingContext());
+        final MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(respond(exchange))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getHeaders().getContentType(), is(MediaType.APPLICATION_XML));
+        StepVerifier.create(DataBufferUtils.join(exchange.getResponse().getBody()))
+                .assertNext(body -> assertThat(body.readableByteCount(), greaterThan(DEFAULT_CHUNK_SIZE)))
+                .verifyComplete();
+        verify(slideShow).close();
+    }
+
+    @Test
+    public void givenStreamCancelledThenCloseSlideShow() throws Exception {
+        givenWorkflowResult(streamingContext());
+        final MockServerWebExchange exchange = exchange();
+        exchange.getResponse().setWriteHandler(body -> Flux.from(body)
+                .take(1)
+                .doOnNext(DataBufferUtils::release)
+                .then());
+
+        StepVerifier.create(respond(exchange))
+                .verifyComplete();
+
+        verify(slideShow, timeout(5000)).close();
+    }
+
+    @Test
+    public void givenStreamFailedThenCloseSlideShow() throws Exception {
+        givenWorkflowResult(streamingContext().setContentWriter(os -> writeSlideShow(slideShow, new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        })));
+        final MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(respond(exchange))
+                .verifyError(RuntimeException.class);
+
+        verify(slideShow).close();
+    }
+
+    @Test
+    public void givenStreamingContextThenNeverSerializeSlideShow() {
+        final SmileWorkflowContextCodec codec = new SmileWorkflowContextCodec();
+
+        final BuildSlidesWorkflowContext decoded =
+                codec.decode(codec.encode(streamingContext()), BuildSlidesWorkflowContext.class);
+
+        assertThat(decoded.hasStreamingContent(), is(false));
+        assertThat(decoded.getSlideShow(), is(nullValue()));
+        assertThat(decoded.getFinalContentType(), is(MediaType.APPLICATION_XML));
+    }
+
+    @Test
+    public void givenAsyncRequestThenSubmitDetachedWorkflow() {
+        final ClaimTicket claimTicket = ClaimTicket.builder()
+                .claimTicket("ticket")
+                .status(WorkflowStatus.RUNNING)
+                .build();
+        when(workflowService.submitWorkflow(any(BuildSlidesWorkflowContext.class))).thenReturn(Mono.just(claimTicket));
+
+        StepVerifier.create(handler.runWorkflow(MockServerRequest.builder()
+                .pathVariable("setList", "Easter")
+                .queryParam("async", "true")
+                .build()))
+                .assertNext(response -> {
+                    assertThat(response.statusCode(), is(HttpStatus.ACCEPTED));
+                    assertThat(response.headers().getFirst(CLAIM_TICKET_HEADER), is("ticket"));
+                    assertThat(response.headers().getLocation().toString(),
+                            is("/api/v1/workflow/build-slides/ticket/status"));
+                })
+                .verifyComplete();
+
+        final ArgumentCaptor<BuildSlidesWorkflowContext> submitted =
+                ArgumentCaptor.forClass(BuildSlidesWorkflowContext.class);
+        verify(workflowService).submitWorkflow(submitted.capture());
+        assertThat(submitted.getValue().getSetListName(), is("Easter"));
+        verify(workflowService, never()).runWorkflow(any(), any());
+    }
+
+    @Test
+    public void givenBufferedContentThenSendBytes() {
+        givenWorkflowResult(BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .contentType(MediaType.APPLICATION_XML)
+                .content(new byte[] { 1, 2, 3 })
+                .build());
+        final MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(respond(exchange))
+                .verifyComplete();
+
+        StepVerifier.create(DataBufferUtils.join(exchange.getResponse().getBody()).map(DataBuffer::readableByteCount))
+                .expectNext(3)
+                .verifyComplete();
+    }
+
+    private void givenWorkflowResult(final BuildSlidesWorkflowContext result) {
+        when(workflowService.runWorkflow(any(BuildSlidesWorkflowContext.class), eq(BuildSlidesWorkflowContext.class)))
+                .thenReturn(Mono.just(result));
+    }
+
+    private Mono<Void> respond(final MockServerWebExchange exchange) {
+        return handler.runWorkflow(request()).flatMap(response -> response.writeTo(exchange, RESPONSE_CONTEXT));
+    }
+
+    private BuildSlidesWorkflowContext streamingContext() {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.COMPLETED)
+                .contentType(MediaType.APPLICATION_XML)
+                .slideShow(slideShow)
+                .build();
+        return context.setContentWriter(os -> writeSlideShow(slideShow, os));
+    }
+
+    private static MockServerRequest request() {
+        return MockServerRequest.builder().pathVariable("setList", "Easter").build();
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/workflow/build-slides/Easter"));
+    }
+
+}
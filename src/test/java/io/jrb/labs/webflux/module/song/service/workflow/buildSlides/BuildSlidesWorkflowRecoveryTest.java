@@ -0,0 +1,170 @@
+package io.jrb.labs.webflux.module.song.service.workflow.buildSlides;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.module.workflow.WorkflowModuleConfig;
+import io.jrb.labs.webflux.common.module.workflow.model.WorkflowStatus;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowContext;
+import io.jrb.labs.webflux.common.module.workflow.service.IWorkflowStateRepository;
+import io.jrb.labs.webflux.common.module.workflow.service.SmileWorkflowContextCodec;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowAdmissionController;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowEventBroadcaster;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowMetrics;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowRecoveryScanner;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowService;
+import io.jrb.labs.webflux.common.module.workflow.service.WorkflowStepPolicies;
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.jrb.labs.webflux.module.song.service.ISetListService;
+import io.jrb.labs.webflux.module.song.service.ISongService;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.SongSlideFragmentCache;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.findSetList.FindSetListCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.findSongsForSetList.FindSongsForSetListCommand;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow.OpenSlideShowCommand;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BuildSlidesWorkflowRecoveryTest {
+
+    private static final SongEntity SONG = SongEntity.builder()
+            .id("song1")
+            .title("Song One")
+            .lyrics(ImmutableMap.of("v1", ImmutableList.of("first verse")))
+            .lyricOrder(ImmutableList.of("v1"))
+            .build();
+
+    @Mock
+    private IWorkflowStateRepository workflowStateRepository;
+
+    @Mock
+    private ISetListService setListService;
+
+    @Mock
+    private ISongService songService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void givenWorkflowInterruptedAfterSongLookupThenResumeAndComplete() {
+        final SmileWorkflowContextCodec codec = new SmileWorkflowContextCodec();
+        final BuildSlidesWorkflowContext interrupted = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .setListName("Easter")
+                .setListEntity(SetListEntity.builder().id("set1").songs(ImmutableList.of(SONG.getTitle())).build())
+                .songs(ImmutableMap.of(SONG.getTitle(), SONG))
+                .completedSteps(ImmutableSet.of("find-set-list", "find-songs-for-set-list"))
+                .build();
+        final BuildSlidesWorkflowContext restored = codec.decode(codec.encode(interrupted), BuildSlidesWorkflowContext.class);
+        final AtomicReference<IWorkflowContext> saved = new AtomicReference<>();
+        givenStaleWorkflow(restored, saved);
+
+        StepVerifier.create(scanner().recover())
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertThat(saved.get().getStatus(), is(WorkflowStatus.COMPLETED));
+        assertThat(saved.get().getCompletedSteps(),
+                contains("find-set-list", "find-songs-for-set-list", "build-slide-show"));
+        assertThat(((BuildSlidesWorkflowContext) saved.get()).getContent().length, greaterThan(0));
+        verifyNoInteractions(setListService, songService);
+    }
+
+    @Test
+    public void givenWorkflowInterruptedAfterLastDurableStepThenCompleteWithoutOpeningSlideShow() {
+        final BuildSlidesWorkflowContext interrupted = BuildSlidesWorkflowContext.builder()
+                .status(WorkflowStatus.RUNNING)
+                .setListName("Easter")
+                .content(new byte[] { 1, 2, 3 })
+                .completedSteps(ImmutableSet.of("find-set-list", "find-songs-for-set-list", "build-slide-show"))
+                .build();
+        final AtomicReference<IWorkflowContext> saved = new AtomicReference<>();
+        givenStaleWorkflow(interrupted, saved);
+
+        StepVerifier.create(scanner().recover())
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertThat(saved.get().getStatus(), is(WorkflowStatus.COMPLETED));
+        assertThat(((BuildSlidesWorkflowContext) saved.get()).getSlideShow(), is(nullValue()));
+    }
+
+    private void givenStaleWorkflow(
+            final BuildSlidesWorkflowContext context,
+            final AtomicReference<IWorkflowContext> saved
+    ) {
+        when(workflowStateRepository.renewLeases(anySet())).thenReturn(Mono.empty());
+        when(workflowStateRepository.claimStale(anySet(), any())).thenReturn(Flux.just(context.getClaimTicket()));
+        when(workflowStateRepository.find(context.getClaimTicket(), IWorkflowContext.class))
+                .thenReturn(Mono.just(context));
+        when(workflowStateRepository.save(anyString(), any())).thenAnswer(invocation -> {
+            saved.set(invocation.getArgument(1));
+            return Mono.empty();
+        });
+    }
+
+    private WorkflowRecoveryScanner scanner() {
+        final BuildSlideShowConfig config = new BuildSlideShowConfig(
+                "Blank", null, 38, null, null, new BuildSlideShowConfig.Margins(20, 20, 40, 40),
+                null, null, false, null
+        );
+        final SlideShowTemplate template = new SlideShowTemplate(null);
+        final WorkflowMetrics workflowMetrics = new WorkflowMetrics(meterRegistry);
+        final WorkflowEventBroadcaster workflowEventBroadcaster = new WorkflowEventBroadcaster(Duration.ofMinutes(1));
+        final BuildSlidesWorkflowFactory workflowFactory = new BuildSlidesWorkflowFactory(
+                workflowStateRepository,
+                workflowEventBroadcaster,
+                workflowMetrics,
+                new WorkflowStepPolicies(ImmutableMap.of(), new WorkflowModuleConfig.StepPolicy(null, null, null, null, null)),
+                new FindSetListCommand(setListService),
+                new FindSongsForSetListCommand(songService, config.songLookup()),
+                new OpenSlideShowCommand(config, template, Schedulers.immediate()),
+                new BuildSlideShowCommand(config, template, Schedulers.immediate(),
+                        new SongSlideFragmentCache(config.fragmentCache(), meterRegistry))
+        );
+        final WorkflowService workflowService = new WorkflowService(
+                ImmutableMap.of("buildSlidesWorkflowFactory", workflowFactory),
+                ImmutableMap.of(),
+                workflowStateRepository,
+                Schedulers.immediate(),
+                workflowEventBroadcaster,
+                new WorkflowAdmissionController(ImmutableMap.of(), new WorkflowModuleConfig.Admission(null, null, null),
+                        meterRegistry),
+                workflowMetrics
+        );
+        return new WorkflowRecoveryScanner(
+                workflowStateRepository,
+                workflowService,
+                WorkflowModuleConfig.Recovery.RESUME,
+                new WorkflowModuleConfig.Lease(null, null),
+                Clock.systemUTC()
+        );
+    }
+
+}
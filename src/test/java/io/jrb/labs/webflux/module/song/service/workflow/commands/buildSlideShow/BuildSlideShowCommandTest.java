@@ -0,0 +1,80 @@
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFTextShape;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class BuildSlideShowCommandTest {
+
+    private static final SongEntity SONG = SongEntity.builder()
+            .id("song1")
+            .title("Song One")
+            .lyrics(ImmutableMap.of(
+                    "v1", ImmutableList.of("first verse"),
+                    "c1", ImmutableList.of("chorus")
+            ))
+            .lyricOrder(ImmutableList.of("v1", "c1", "v1"))
+            .build();
+
+    private SimpleMeterRegistry meterRegistry;
+    private BuildSlideShowCommand command;
+
+    @BeforeEach
+    public void init() {
+        final BuildSlideShowConfig config = new BuildSlideShowConfig(
+                "Blank", null, 38, null, null, new BuildSlideShowConfig.Margins(20, 20, 40, 40),
+                null, null, false, null
+        );
+        meterRegistry = new SimpleMeterRegistry();
+        command = new BuildSlideShowCommand(
+                config,
+                new SlideShowTemplate(null),
+                Schedulers.immediate(),
+                new SongSlideFragmentCache(config.fragmentCache(), meterRegistry)
+        );
+    }
+
+    @Test
+    public void givenRepeatedSongThenReuseItsFragment() throws Exception {
+        final List<String> first = render();
+        final List<String> second = render();
+
+        assertThat(first, contains("first verse", "chorus", "first verse"));
+        assertThat(second, is(first));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "slides.fragments").tag("result", "hit")
+                .functionCounter().count(), is(1.0));
+    }
+
+    private List<String> render() throws Exception {
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .setListEntity(SetListEntity.builder().id("set1").songs(ImmutableList.of(SONG.getTitle())).build())
+                .songs(ImmutableMap.of(SONG.getTitle(), SONG))
+                .build();
+        command.run(context).block();
+        try (final XMLSlideShow xss = new XMLSlideShow(new ByteArrayInputStream(context.getContent()))) {
+            return xss.getSlides().stream()
+                    .flatMap(slide -> slide.getShapes().stream())
+                    .filter(shape -> shape instanceof XSLFTextShape)
+                    .map(shape -> ((XSLFTextShape) shape).getText().trim())
+                    .collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.collect.ImmutableList;
+import io.jrb.labs.webflux.module.song.model.SetListEntity;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingBuildSlideShowCommandTest {
+
+    private static final int MAX_DECK_SIZE = 100;
+
+    @TempDir
+    Path spillDirectory;
+
+    @Mock
+    private IBuildSlideShowCommand delegate;
+
+    private SlideShowDeckCache deckCache;
+    private CachingBuildSlideShowCommand command;
+
+    @BeforeEach
+    public void init() {
+        deckCache = new SlideShowDeckCache(
+                new BuildSlideShowConfig.DeckCache(true, (long) MAX_DECK_SIZE, spillDirectory.toString()),
+                new SimpleMeterRegistry(),
+                Schedulers.immediate()
+        );
+        final BuildSlideShowConfig config = new BuildSlideShowConfig(
+                "Blank", null, 38, null, null, new BuildSlideShowConfig.Margins(20, 20, 40, 40), null, null, false, null);
+        command = new CachingBuildSlideShowCommand(delegate, deckCache, config);
+    }
+
+    @Test
+    public void givenStreamedDeckWithinLimitThenServeNextRunFromCache() {
+        givenStreamedDeck(MAX_DECK_SIZE);
+
+        assertThat(streamDeck().length, is(MAX_DECK_SIZE));
+
+        StepVerifier.create(command.run(context()))
+                .assertNext(ctx -> assertThat(ctx.getContent().length, is(MAX_DECK_SIZE)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenStreamedDeckOverLimitThenStreamWithoutCaching() {
+        givenStreamedDeck(MAX_DECK_SIZE + 1);
+
+        assertThat(streamDeck().length, is(MAX_DECK_SIZE + 1));
+
+        StepVerifier.create(command.run(context()))
+                .assertNext(ctx -> assertThat(ctx.getContentWriter() != null, is(true)))
+                .verifyComplete();
+    }
+
+    private void givenStreamedDeck(final int size) {
+        when(delegate.run(any())).thenAnswer(invocation -> {
+            final IBuildSlideShowContext context = invocation.getArgument(0);
+            return Mono.just(context.setContentWriter(os -> {
+                try {
+                    for (int i = 0; i < size; i++) {
+                        os.write(i);
+                    }
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        });
+    }
+
+    private byte[] streamDeck() {
+        final IBuildSlideShowContext streamed = command.run(context()).block();
+        final ByteArrayOutputStream response = new ByteArrayOutputStream();
+        streamed.getContentWriter().accept(response);
+        return response.toByteArray();
+    }
+
+    private static IBuildSlideShowContext context() {
+        return BuildSlidesWorkflowContext.builder()
+                .setListEntity(SetListEntity.builder().id("set1").songs(ImmutableList.of()).build())
+                .build();
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.collect.ImmutableSet;
+import io.jrb.labs.webflux.common.service.crud.event.UpdateEntityEvent;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class SlideShowDeckCacheTest {
+
+    private static final int DECK_SIZE = 100;
+
+    @TempDir
+    Path spillDirectory;
+
+    private SlideShowDeckCache deckCache;
+
+    @BeforeEach
+    public void init() {
+        deckCache = new SlideShowDeckCache(
+                new BuildSlideShowConfig.DeckCache(true, (long) DECK_SIZE, spillDirectory.toString()),
+                new SimpleMeterRegistry(),
+                Schedulers.immediate()
+        );
+    }
+
+    @Test
+    public void givenEvictedDeckThenServeFromDisk() {
+        final byte[] first = new byte[DECK_SIZE];
+        first[0] = 1;
+        StepVerifier.create(deckCache.put("set1:a", "set1", ImmutableSet.of("song1"), first)
+                .then(deckCache.put("set2:b", "set2", ImmutableSet.of("song2"), new byte[DECK_SIZE])))
+                .verifyComplete();
+
+        StepVerifier.create(deckCache.find("set1:a"))
+                .expectNextMatches(content -> content.length == DECK_SIZE && content[0] == 1)
+                .verifyComplete();
+        StepVerifier.create(deckCache.find("set2:b"))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenUpdatedSongThenInvalidateDecks() {
+        StepVerifier.create(deckCache.put("set1:a", "set1", ImmutableSet.of("song1"), new byte[10])).verifyComplete();
+
+        deckCache.onUpdate(new UpdateEntityEvent<>(SongEntity.builder().id("song1").build()));
+
+        StepVerifier.create(deckCache.find("set1:a")).verifyComplete();
+    }
+
+    @Test
+    public void givenSharedSpillDirectoryThenOnlyRemoveOwnDecks() throws Exception {
+        final Path foreignDeck = Files.write(spillDirectory.resolve("other.deck"), new byte[] { 1 });
+        StepVerifier.create(deckCache.put("set1:a", "set1", ImmutableSet.of("song1"), new byte[DECK_SIZE])
+                .then(deckCache.put("set2:b", "set2", ImmutableSet.of("song2"), new byte[DECK_SIZE])))
+                .verifyComplete();
+
+        final SlideShowDeckCache restarted = new SlideShowDeckCache(
+                new BuildSlideShowConfig.DeckCache(true, (long) DECK_SIZE, spillDirectory.toString()),
+                new SimpleMeterRegistry(),
+                Schedulers.immediate()
+        );
+        assertThat(Files.exists(foreignDeck), is(true));
+        StepVerifier.create(deckCache.find("set1:a")).expectNextCount(1).verifyComplete();
+
+        deckCache.close();
+        restarted.close();
+
+        assertThat(listFileNames(spillDirectory), contains("other.deck"));
+    }
+
+    private List<String> listFileNames(final Path directory) throws Exception {
+        try (final Stream<Path> paths = Files.list(directory)) {
+            return paths.map(Path::getFileName).map(Path::toString).collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.webflux.common.service.crud.event.UpdateEntityEvent;
+import io.jrb.labs.webflux.module.song.model.SongEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.presentationml.x2006.main.CTShape;
+
+import java.awt.Dimension;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class SongSlideFragmentCacheTest {
+
+    private static final Dimension PAGE_SIZE = new Dimension(720, 540);
+
+    private static final SongEntity SONG = SongEntity.builder()
+            .id("song1")
+            .title("Song One")
+            .lyrics(ImmutableMap.of("v1", ImmutableList.of("first verse")))
+            .lyricOrder(ImmutableList.of("v1"))
+            .build();
+
+    private final SongSlideFragmentCache cache = new SongSlideFragmentCache(
+            new BuildSlideShowConfig.FragmentCache(null), new SimpleMeterRegistry());
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    public void givenSameSongAndSettingsThenHit() {
+        find(SONG, "settings");
+        find(SONG, "settings");
+
+        assertThat(renders.get(), is(1));
+    }
+
+    @Test
+    public void givenOtherSettingsThenMiss() {
+        find(SONG, "settings");
+        find(SONG, "other-settings");
+
+        assertThat(renders.get(), is(2));
+    }
+
+    @Test
+    public void givenChangedLyricsThenMiss() {
+        find(SONG, "settings");
+        find(SONG.toBuilder().lyrics(ImmutableMap.of("v1", ImmutableList.of("new verse"))).build(), "settings");
+
+        assertThat(renders.get(), is(2));
+    }
+
+    @Test
+    public void givenSongUpdatedThenInvalidate() {
+        find(SONG, "settings");
+
+        cache.onUpdate(new UpdateEntityEvent<>(SONG));
+        find(SONG, "settings");
+
+        assertThat(renders.get(), is(2));
+    }
+
+    private List<CTShape> find(final SongEntity song, final String configFingerprint) {
+        return cache.find(song, configFingerprint, PAGE_SIZE, () -> {
+            renders.incrementAndGet();
+            return ImmutableList.of();
+        });
+    }
+
+}
@@ -6,19 +6,22 @@ import io.jrb.labs.webflux.module.song.model.SetListEntity;
 import io.jrb.labs.webflux.module.song.model.SongEntity;
 import io.jrb.labs.webflux.module.song.service.ISongService;
 import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Map;
 
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.eq;
@@ -36,7 +39,7 @@ class FindSongsForSetListCommandTest {
 
     @BeforeEach
     public void init() {
-        command = new FindSongsForSetListCommand(songService);
+        command = new FindSongsForSetListCommand(songService, new BuildSlideShowConfig.SongLookup(null, null, null));
     }
 
     @Test
@@ -59,9 +62,7 @@ class FindSongsForSetListCommandTest {
         final SongEntity song3 = SongEntity.builder()
                 .title(song3Name)
                 .build();
-        when(songService.findByTitle(eq(song1Name))).thenReturn(Mono.just(song1));
-        when(songService.findByTitle(eq(song2Name))).thenReturn(Mono.just(song2));
-        when(songService.findByTitle(eq(song3Name))).thenReturn(Mono.just(song3));
+        when(songService.findByTitles(eq(setListEntity.getSongs()))).thenReturn(Flux.just(song1, song2, song3));
 
         final Map<String, SongEntity> songMap = ImmutableMap.<String, SongEntity>builder()
                 .put(song1Name, song1)
@@ -77,6 +78,75 @@ class FindSongsForSetListCommandTest {
                 .assertNext(subctx -> {
                     assertThat(subctx, is(notNullValue()));
                     assertThat(context.getSongs(), is(songMap));
+                    assertThat(ImmutableList.copyOf(context.getSongs().keySet()), is(setListEntity.getSongs()));
+                    assertThat(context.getMissingSongs(), is(empty()));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenBatchedLookupThenKeepSetListOrder() {
+        final String setListName = randomAlphabetic(10, 25);
+        final String song1Name = randomAlphabetic(10, 25);
+        final String song2Name = randomAlphabetic(10, 25);
+        final String song3Name = randomAlphabetic(10, 25);
+
+        final SetListEntity setListEntity = SetListEntity.builder()
+                .name(setListName)
+                .songs(ImmutableList.of(song1Name, song2Name, song3Name))
+                .build();
+        final SongEntity song1 = SongEntity.builder()
+                .title(song1Name)
+                .build();
+        final SongEntity song2 = SongEntity.builder()
+                .title(song2Name)
+                .build();
+        final SongEntity song3 = SongEntity.builder()
+                .title(song3Name)
+                .build();
+        when(songService.findByTitles(eq(ImmutableList.of(song1Name))))
+                .thenReturn(Flux.just(song1).delayElements(Duration.ofMillis(50)));
+        when(songService.findByTitles(eq(ImmutableList.of(song2Name))))
+                .thenReturn(Flux.just(song2).delayElements(Duration.ofMillis(25)));
+        when(songService.findByTitles(eq(ImmutableList.of(song3Name)))).thenReturn(Flux.just(song3));
+
+        command = new FindSongsForSetListCommand(songService, new BuildSlideShowConfig.SongLookup(1, 3, 1));
+        final BuildSlidesWorkflowContext context = spy(BuildSlidesWorkflowContext.builder()
+                .setListEntity(setListEntity)
+                .build());
+
+        StepVerifier.create(command.run(context))
+                .assertNext(subctx -> assertThat(
+                        ImmutableList.copyOf(context.getSongs().keySet()),
+                        is(setListEntity.getSongs())
+                ))
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenUnknownSongThenReportMissingSong() {
+        final String setListName = randomAlphabetic(10, 25);
+        final String song1Name = randomAlphabetic(10, 25);
+        final String song2Name = randomAlphabetic(10, 25);
+
+        final SetListEntity setListEntity = SetListEntity.builder()
+                .name(setListName)
+                .songs(ImmutableList.of(song1Name, song2Name))
+                .build();
+        final SongEntity song1 = SongEntity.builder()
+                .title(song1Name)
+                .build();
+        when(songService.findByTitles(eq(setListEntity.getSongs()))).thenReturn(Flux.just(song1));
+
+        final BuildSlidesWorkflowContext context = spy(BuildSlidesWorkflowContext.builder()
+                .setListEntity(setListEntity)
+                .build());
+
+        StepVerifier.create(command.run(context))
+                .assertNext(subctx -> {
+                    assertThat(subctx, is(notNullValue()));
+                    assertThat(context.getSongs(), is(ImmutableMap.of(song1Name, song1)));
+                    assertThat(context.getMissingSongs(), is(ImmutableList.of(song2Name)));
                 })
                 .verifyComplete();
     }
@@ -92,8 +162,8 @@ class FindSongsForSetListCommandTest {
                 .songs(ImmutableList.of(song1Name))
                 .build();
 
-        when(songService.findByTitle(eq(song1Name)))
-                .thenReturn(Mono.error(new IllegalArgumentException(errorMessage)));
+        when(songService.findByTitles(eq(setListEntity.getSongs())))
+                .thenReturn(Flux.error(new IllegalArgumentException(errorMessage)));
 
         final BuildSlidesWorkflowContext context = spy(BuildSlidesWorkflowContext.builder()
                 .setListEntity(setListEntity)
@@ -0,0 +1,35 @@
+package io.jrb.labs.webflux.module.song.service.workflow.commands.openSlideShow;
+
+import io.jrb.labs.webflux.common.poi.SlideShowTemplate;
+import io.jrb.labs.webflux.module.song.service.workflow.buildSlides.BuildSlidesWorkflowContext;
+import io.jrb.labs.webflux.module.song.service.workflow.commands.buildSlideShow.BuildSlideShowConfig;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class OpenSlideShowCommandTest {
+
+    private final OpenSlideShowCommand command = new OpenSlideShowCommand(
+            mock(BuildSlideShowConfig.class), mock(SlideShowTemplate.class), Schedulers.immediate());
+
+    @Test
+    public void givenLaterStepFailedThenCloseSlideShow() throws Exception {
+        final XMLSlideShow slideShow = mock(XMLSlideShow.class);
+        final BuildSlidesWorkflowContext context = BuildSlidesWorkflowContext.builder()
+                .slideShow(slideShow)
+                .build();
+
+        StepVerifier.create(command.compensate(context)).verifyComplete();
+
+        verify(slideShow).close();
+        assertThat(context.getSlideShow(), is(nullValue()));
+    }
+
+}